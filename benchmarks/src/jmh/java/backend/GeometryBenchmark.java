@@ -0,0 +1,72 @@
+package backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placing a window on the simulated desktop in place of User32: monitor lookup, layout table and target computation,
+ * plus compiling the layout table itself as done on every display change
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeometryBenchmark {
+
+    private static final String[] POSITIONS = {"top_left", "top_right", "bottom_left", "bottom_right", "top", "middle", "bottom"};
+
+    private SimulatedWindowSystem windowSystem;
+    private WindowManager windowManager;
+    private long resizableWindow;
+    private long fixedWindow;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        // moving a window logs it, only warnings and errors are written so that the console stays out of the measurement,
+        // unless a level is asked for with -Dwindowsmanager.log
+        if (System.getProperty("windowsmanager.log") == null)
+            Log.setThreshold(Log.Level.WARN);
+
+        ShortcutManager.setShortcuts(Map.of());
+        windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(3, 2560, 1440, 40));
+        resizableWindow = windowSystem.addWindow(new Rect(2600, 100, 3400, 700), true);
+        fixedWindow = windowSystem.addWindow(new Rect(100, 100, 900, 700), false);
+        for (int i = 0; i < 20; i++)
+            windowSystem.addWindow(new Rect(i * 300, 200, i * 300 + 800, 800), i % 2 == 0);
+
+        windowManager = new WindowManager(windowSystem);
+    }
+
+    @Benchmark
+    public void moveResizableWindow() {
+        index = index + 1 == POSITIONS.length ? 0 : index + 1;
+        windowManager.moveWindow(resizableWindow, POSITIONS[index]);
+    }
+
+    @Benchmark
+    public void moveFixedSizeWindow() {
+        index = index + 1 == POSITIONS.length ? 0 : index + 1;
+        windowManager.moveWindow(fixedWindow, POSITIONS[index]);
+    }
+
+    @Benchmark
+    public void arrangeWindows() {
+        windowManager.moveWindow(resizableWindow, WindowManager.ARRANGE_ACTION);
+    }
+
+    @Benchmark
+    public LayoutTable compileLayoutTable() {
+        return LayoutTable.compile(ShortcutManager.getBindings().getLayout(), MonitorTopology.capture(windowSystem));
+    }
+
+}
@@ -0,0 +1,56 @@
+package backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key code conversions done for every key event, over a mix of plain and extended JNativeHook codes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyCodeConverterBenchmark {
+
+    private int[] jnhKeyCodes;
+    private int[] awtKeyCodes;
+    private int index;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42);
+        jnhKeyCodes = new int[1024];
+        awtKeyCodes = new int[1024];
+
+        for (int i = 0; i < jnhKeyCodes.length; i++) {
+            int jnaKeyCode;
+            do {
+                jnaKeyCode = random.nextInt(256);
+            } while (KeyCodeConverter.jnaToJnativehook(jnaKeyCode) == -1);
+
+            jnhKeyCodes[i] = KeyCodeConverter.jnaToJnativehook(jnaKeyCode);
+            awtKeyCodes[i] = random.nextInt(0x300);
+        }
+    }
+
+    @Benchmark
+    public int jnativehookToJNA() {
+        index = (index + 1) & 1023;
+        return KeyCodeConverter.jnativehookToJNA(jnhKeyCodes[index]);
+    }
+
+    @Benchmark
+    public int awtToJNA() {
+        index = (index + 1) & 1023;
+        return KeyCodeConverter.awtToJNA(awtKeyCodes[index]);
+    }
+
+}
@@ -0,0 +1,79 @@
+package backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching held keys against the saved shortcuts, as done by nativeKeyPressed, for a growing number of bindings.
+ * The simulated desktop has no foreground window, so a match stops before an action is queued.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatchingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int bindings;
+
+    private WindowManager windowManager;
+    private int[][] chords; // JNH key codes of bound chords
+    private int index;
+
+    @Setup
+    public void setup() {
+
+        // Ctrl or Alt with a letter, a digit, a function key and a numpad digit, every chord is distinct
+        Map<String, List<Integer>> shortcuts = new LinkedHashMap<>();
+        for (int i = 0; i < bindings; i++)
+            shortcuts.put("position_" + i, List.of(i % 2 == 0 ? KeyCodeConverter.JNA_CONTROL : KeyCodeConverter.JNA_ALT,
+                    65 + i / 2 % 26, 48 + i / 52 % 10, 0x70 + i / 520 % 24, 0x60 + i / 12480 % 10));
+        ShortcutManager.setShortcuts(shortcuts);
+
+        windowManager = new WindowManager(new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(1, 2560, 1440, 40)));
+
+        chords = new int[Math.min(bindings, 1024)][];
+        int i = 0;
+        for (List<Integer> chord : shortcuts.values()) {
+            if (i == chords.length)
+                break;
+            chords[i++] = chord.stream().mapToInt(KeyCodeConverter::jnaToJnativehook).toArray();
+        }
+    }
+
+    /**
+     * Presses and releases every key of a bound chord, the last press completes the shortcut
+     */
+    @Benchmark
+    public void pressBoundChord() {
+
+        index = index + 1 == chords.length ? 0 : index + 1;
+        int[] chord = chords[index];
+
+        for (int keyCode : chord)
+            windowManager.keyPressed(keyCode);
+        for (int keyCode : chord)
+            windowManager.keyReleased(keyCode);
+    }
+
+    /**
+     * A single key which is not part of any shortcut, like most key presses while typing
+     */
+    @Benchmark
+    public void pressUnboundKey() {
+        int keyCode = KeyCodeConverter.jnaToJnativehook(0x7B); // F12
+        windowManager.keyPressed(keyCode);
+        windowManager.keyReleased(keyCode);
+    }
+
+}
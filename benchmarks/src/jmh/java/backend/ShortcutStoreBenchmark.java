@@ -0,0 +1,94 @@
+package backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading and saving the shortcuts file with a growing number of bindings, in the text and in the binary form
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShortcutStoreBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int bindings;
+
+    @Param({"shortcuts.txt", "shortcuts.bin"})
+    public String fileName;
+
+    private Path directory;
+    private ShortcutStore store;
+    private Map<String, String> entries;
+    private int change;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+
+        directory = Files.createTempDirectory("shortcut-store");
+        store = new ShortcutStore(directory.resolve(fileName));
+
+        // every chord is distinct: Ctrl or Alt, a letter, a digit, a function key and a numpad digit
+        entries = new LinkedHashMap<>();
+        for (int i = 0; i < bindings; i++)
+            entries.put("position_" + i, (i % 2 == 0 ? 17 : 18) + "," + (65 + i / 2 % 26) + "," + (48 + i / 52 % 10)
+                    + "," + (0x70 + i / 520 % 24) + "," + (0x60 + i / 12480 % 10));
+        entries.put("layout.center", "3x3@1,1");
+
+        store.save(entries, List.of());
+        store.compact();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> load() {
+        return store.load();
+    }
+
+    /**
+     * Saves a single changed shortcut, which appends to the journal and compacts every few hundred saves
+     */
+    @Benchmark
+    public void saveOneChange() {
+        change++;
+        store.save(Map.of("position_0", "18," + (65 + change % 26)), List.of());
+    }
+
+    /**
+     * Parses the loaded entries and compiles them into the bindings used for matching, the rest of loading shortcuts
+     */
+    @Benchmark
+    public Bindings parseAndCompile() {
+        Map<String, List<Integer>> shortcuts = new HashMap<>();
+        Map<String, List<List<Integer>>> sequences = new LinkedHashMap<>();
+        ShortcutManager.parseShortcuts(entries, shortcuts, sequences);
+        return new Bindings(shortcuts, sequences, Bindings.DEFAULT_SEQUENCE_TIMEOUT_NANOS, Bindings.NO_REPEAT, Bindings.NO_ANIMATION, false,
+                Layout.compile(Map.of()), WindowRules.EMPTY, Map.of());
+    }
+
+}
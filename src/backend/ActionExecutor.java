@@ -0,0 +1,206 @@
+package backend;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Applies window actions on a dedicated thread, so that a slow or hung target window never stalls the global key hook.
+ * Pending actions are kept in a bounded queue keyed by window handle. A newer action for a window which is still
+ * waiting replaces the older one (latest wins), and actions for new windows are dropped once the queue is full.
+ */
+public class ActionExecutor {
+
+    private final Map<Long, PendingAction> pendingActions = new LinkedHashMap<>();
+    private final int capacity;
+    private final WindowAction action;
+    private final LatencyMetrics latencyMetrics;
+
+    // metrics, guarded by pendingActions
+    private long submittedCount;
+    private long coalescedCount;
+    private long droppedCount;
+
+    // metrics, written only by the worker thread
+    private volatile long executedCount;
+    private volatile long lastLatencyNanos;
+    private volatile long maxLatencyNanos;
+    private volatile long totalLatencyNanos;
+
+    /**
+     * Starts the worker thread which applies the given action to every submitted window and position,
+     * recording the time spent in the queue and the time from the key press until the action was applied
+     */
+    public ActionExecutor(int capacity, WindowAction action, LatencyMetrics latencyMetrics) {
+        this.capacity = capacity;
+        this.action = action;
+        this.latencyMetrics = latencyMetrics;
+
+        Thread worker = new Thread(this::runWorker, "window-actions");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues the position for the window in constant time, without waiting for it to be applied.
+     * Returns false if the queue is full and the action was dropped.
+     */
+    public boolean submit(long window, String position) {
+        return submit(window, position, System.nanoTime());
+    }
+
+    /**
+     * Queues the position for the window, pressedNanos is the System.nanoTime() of the key press which triggered the action
+     */
+    public boolean submit(long window, String position, long pressedNanos) {
+
+        long now = System.nanoTime();
+
+        synchronized (pendingActions) {
+            submittedCount++;
+
+            PendingAction pending = pendingActions.get(window);
+            if (pending != null) {
+                // the window has not been moved yet, so only the latest position needs to be applied
+                pending.position = position;
+                coalescedCount++;
+                return true;
+            }
+
+            if (pendingActions.size() >= capacity) {
+                droppedCount++;
+                return false;
+            }
+
+            pendingActions.put(window, new PendingAction(position, pressedNanos, now));
+            pendingActions.notify();
+            return true;
+        }
+    }
+
+    /**
+     * Takes the oldest pending action off the queue and applies it, forever
+     */
+    private void runWorker() {
+
+        while (true) {
+
+            long window;
+            PendingAction pending;
+
+            synchronized (pendingActions) {
+                while (pendingActions.isEmpty()) {
+                    try {
+                        pendingActions.wait();
+                    } catch (InterruptedException err) {
+                        return;
+                    }
+                }
+
+                Iterator<Map.Entry<Long, PendingAction>> oldest = pendingActions.entrySet().iterator();
+                Map.Entry<Long, PendingAction> entry = oldest.next();
+                oldest.remove();
+                window = entry.getKey();
+                pending = entry.getValue();
+            }
+
+            long started = System.nanoTime();
+            latencyMetrics.record(LatencyMetrics.Stage.QUEUE, started - pending.submittedNanos);
+
+            try {
+                action.apply(window, pending.position);
+            } catch (RuntimeException err) {
+                Log.error("Window action failed", err);
+            }
+
+            // end-to-end latency, from the key press being handed over to the window being moved
+            long finished = System.nanoTime();
+            long latency = finished - pending.submittedNanos;
+            latencyMetrics.recordPosition(pending.position, finished - pending.pressedNanos);
+            FlightEvents.actionDispatched(window, pending.position, started - pending.submittedNanos, finished - started,
+                    finished - pending.pressedNanos);
+            lastLatencyNanos = latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            totalLatencyNanos += latency;
+            executedCount++;
+        }
+    }
+
+    /**
+     * Number of windows which are waiting for an action to be applied
+     */
+    public int getQueueDepth() {
+        synchronized (pendingActions) {
+            return pendingActions.size();
+        }
+    }
+
+    public long getSubmittedCount() {
+        synchronized (pendingActions) {
+            return submittedCount;
+        }
+    }
+
+    /**
+     * Number of actions which replaced a pending action for the same window
+     */
+    public long getCoalescedCount() {
+        synchronized (pendingActions) {
+            return coalescedCount;
+        }
+    }
+
+    /**
+     * Number of actions which were dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        synchronized (pendingActions) {
+            return droppedCount;
+        }
+    }
+
+    public long getExecutedCount() {
+        return executedCount;
+    }
+
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    public long getTotalLatencyNanos() {
+        return totalLatencyNanos;
+    }
+
+    public long getAverageLatencyNanos() {
+        long executed = executedCount;
+        return executed == 0 ? 0 : totalLatencyNanos / executed;
+    }
+
+    /**
+     * Action applied by the worker thread to a window handle
+     */
+    public interface WindowAction {
+        void apply(long window, String position);
+    }
+
+    /**
+     * Action waiting to be applied to a window, the position is replaced when a newer action for the same window arrives
+     */
+    private static class PendingAction {
+
+        private String position;
+        private final long pressedNanos;
+        private final long submittedNanos;
+
+        private PendingAction(String position, long pressedNanos, long submittedNanos) {
+            this.position = position;
+            this.pressedNanos = pressedNanos;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+
+}
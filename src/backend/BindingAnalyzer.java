@@ -0,0 +1,213 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Index of bindings by canonical chords, the key code bitsets of ChordIndex, so that the order in which the keys
+ * of a chord were recorded does not matter. It tells in constant time whether a chord is taken, and finds every
+ * conflict of a whole configuration with a few hash lookups per binding:
+ *
+ * - duplicates, bindings with the same chords, of which only the first one can ever fire
+ * - prefixes, a binding whose chords begin another binding, which can then never be completed
+ * - shadowing, a single chord made of some of the keys of another binding's first chord, which fires on the way
+ *   to the larger chord whenever its keys happen to be pressed first
+ *
+ * A single chord is treated as a sequence of one chord. The index is not thread safe, it belongs to whoever edits it.
+ */
+public final class BindingAnalyzer {
+
+    private static final int MAX_SUBSET_KEYS = 8; // larger chords are not checked for shadowing, which would take 2^keys lookups
+
+    private final Map<List<Chord>, List<String>> owners = new HashMap<>(); // positions by their chords
+    private final Map<Chord, List<String>> sequenceStarts = new HashMap<>(); // positions of sequences by their first chord
+    private final Map<String, List<Chord>> bindings = new HashMap<>(); // chords by position
+
+    public BindingAnalyzer(Map<String, List<Integer>> shortcuts, Map<String, List<List<Integer>>> sequences) {
+
+        for (Map.Entry<String, List<Integer>> entry : shortcuts.entrySet())
+            putSequence(entry.getKey(), List.of(entry.getValue()));
+        for (Map.Entry<String, List<List<Integer>>> entry : sequences.entrySet())
+            putSequence(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Binds the position to the single chord, replacing whatever it was bound to
+     */
+    public void put(String position, List<Integer> shortcut) {
+        putSequence(position, List.of(shortcut));
+    }
+
+    private void putSequence(String position, List<List<Integer>> sequence) {
+
+        remove(position);
+
+        List<Chord> chords = new ArrayList<>(sequence.size());
+        for (List<Integer> keyCodes : sequence)
+            chords.add(new Chord(keyCodes));
+        chords = List.copyOf(chords);
+
+        bindings.put(position, chords);
+        owners.computeIfAbsent(chords, key -> new ArrayList<>(1)).add(position);
+        if (chords.size() > 1)
+            sequenceStarts.computeIfAbsent(chords.get(0), key -> new ArrayList<>(1)).add(position);
+    }
+
+    public void remove(String position) {
+
+        List<Chord> chords = bindings.remove(position);
+        if (chords == null)
+            return;
+
+        removeOwner(owners, chords, position);
+        if (chords.size() > 1)
+            removeOwner(sequenceStarts, chords.get(0), position);
+    }
+
+    private static <K> void removeOwner(Map<K, List<String>> index, K key, String position) {
+        List<String> positions = index.get(key);
+        positions.remove(position);
+        if (positions.isEmpty())
+            index.remove(key);
+    }
+
+    /**
+     * Returns a position other than the given one which the chord would conflict with, because it is bound
+     * to the same keys in any order or its sequence starts with them, or null if the chord is free
+     */
+    public String findOwner(String position, List<Integer> shortcut) {
+
+        Chord chord = new Chord(shortcut);
+        String owner = firstOther(owners.get(List.of(chord)), position);
+        return owner != null ? owner : firstOther(sequenceStarts.get(chord), position);
+    }
+
+    private static String firstOther(List<String> positions, String position) {
+        if (positions != null)
+            for (String other : positions)
+                if (!other.equals(position))
+                    return other;
+        return null;
+    }
+
+    /**
+     * Describes every duplicate, prefix and shadowing conflict between the bindings, one line each. Bindings with
+     * the same chords are reported together, so the report grows with the number of distinct bindings.
+     */
+    public List<String> findConflicts() {
+
+        List<String> conflicts = new ArrayList<>();
+
+        for (Map.Entry<List<Chord>, List<String>> entry : owners.entrySet()) {
+            List<Chord> chords = entry.getKey();
+            String positions = String.join(", ", entry.getValue());
+
+            if (entry.getValue().size() > 1)
+                conflicts.add(positions + " are all bound to " + describe(chords));
+
+            for (int length = 1; length < chords.size(); length++) {
+                List<String> prefixOwners = owners.get(chords.subList(0, length));
+                if (prefixOwners != null)
+                    conflicts.add(positions + " (" + describe(chords) + ") can never be completed, "
+                            + String.join(", ", prefixOwners) + " fires on " + describe(chords.subList(0, length)));
+            }
+
+            Chord first = chords.get(0);
+            if (first.size() <= MAX_SUBSET_KEYS)
+                first.forEachProperSubset(subset -> {
+                    List<String> subsetOwners = owners.get(List.of(subset));
+                    if (subsetOwners != null)
+                        conflicts.add(positions + " (" + describe(chords) + ") contains " + String.join(", ", subsetOwners)
+                                + " (" + subset + "), which fires first unless " + first.without(subset) + " is pressed before the rest");
+                });
+        }
+        return conflicts;
+    }
+
+    private static String describe(List<Chord> chords) {
+        StringBuilder text = new StringBuilder();
+        for (Chord chord : chords)
+            text.append(text.length() == 0 ? "" : ";").append(chord);
+        return text.toString();
+    }
+
+    /**
+     * Key codes of a chord as a ChordIndex bitset, equal for the same keys in any order
+     */
+    private static final class Chord {
+
+        private final long[] keys;
+
+        private Chord(List<Integer> keyCodes) {
+            this(new long[ChordIndex.WORDS]);
+            for (int keyCode : keyCodes)
+                ChordIndex.set(keys, keyCode);
+        }
+
+        private Chord(long[] keys) {
+            this.keys = keys;
+        }
+
+        private int size() {
+            int size = 0;
+            for (long word : keys)
+                size += Long.bitCount(word);
+            return size;
+        }
+
+        /**
+         * Passes every non empty subset of the keys which is not the whole chord, built by counting through
+         * the subset masks of the set key codes
+         */
+        private void forEachProperSubset(Consumer<Chord> action) {
+
+            int[] keyCodes = keyCodes();
+            for (int mask = 1; mask < (1 << keyCodes.length) - 1; mask++) {
+                long[] subset = new long[ChordIndex.WORDS];
+                for (int i = 0; i < keyCodes.length; i++)
+                    if ((mask & 1 << i) != 0)
+                        ChordIndex.set(subset, keyCodes[i]);
+                action.accept(new Chord(subset));
+            }
+        }
+
+        private String without(Chord other) {
+            long[] rest = keys.clone();
+            for (int i = 0; i < rest.length; i++)
+                rest[i] &= ~other.keys[i];
+            return new Chord(rest).toString();
+        }
+
+        private int[] keyCodes() {
+            int[] keyCodes = new int[size()];
+            int count = 0;
+            for (int word = 0; word < keys.length; word++)
+                for (long bits = keys[word]; bits != 0; bits &= bits - 1)
+                    keyCodes[count++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+            return keyCodes;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Chord && Arrays.equals(keys, ((Chord) other).keys);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(keys);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (int keyCode : keyCodes())
+                text.append(text.length() == 0 ? "" : ",").append(keyCode);
+            return text.toString();
+        }
+    }
+
+}
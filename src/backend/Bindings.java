@@ -0,0 +1,177 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the active shortcuts and chord sequences, together with the trie compiled from them and the layout,
+ * and one more trie for every application profile.
+ * A snapshot is never changed after it is published, so the key hook thread can read it without locking
+ * while the configurator prepares the next one.
+ */
+public final class Bindings {
+
+    static final long DEFAULT_SEQUENCE_TIMEOUT_NANOS = 1_000_000_000L;
+    static final long NO_REPEAT = 0; // a held shortcut fires once, however long the keyboard keeps repeating
+    static final long NO_ANIMATION = 0; // windows jump to their target
+    static final Bindings EMPTY = new Bindings(Map.of(), Map.of(), DEFAULT_SEQUENCE_TIMEOUT_NANOS, NO_REPEAT, NO_ANIMATION, false,
+            Layout.compile(Map.of()), WindowRules.EMPTY, Map.of());
+
+    private final Map<String, List<Integer>> shortcuts;
+    private final Map<String, List<List<Integer>>> sequences;
+    private final long sequenceTimeoutNanos;
+    private final long repeatIntervalNanos;
+    private final long animationNanos;
+    private final boolean dragSnap;
+    private final SequenceTrie trie;
+    private final Layout layout;
+    private final WindowRules rules;
+    private final Map<String, Map<String, List<List<Integer>>>> profiles; // shortcuts by process name, then by position
+    private final Map<String, SequenceTrie> profileTries; // by process name
+
+    Bindings(Map<String, List<Integer>> shortcuts, Map<String, List<List<Integer>>> sequences, long sequenceTimeoutNanos,
+             long repeatIntervalNanos, long animationNanos, boolean dragSnap, Layout layout, WindowRules rules,
+             Map<String, Map<String, List<List<Integer>>>> profiles) {
+
+        Map<String, List<Integer>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : shortcuts.entrySet())
+            copy.put(entry.getKey(), List.copyOf(entry.getValue()));
+
+        Map<String, List<List<Integer>>> sequencesCopy = new LinkedHashMap<>();
+        for (Map.Entry<String, List<List<Integer>>> entry : sequences.entrySet())
+            sequencesCopy.put(entry.getKey(), entry.getValue().stream().map(List::copyOf).toList());
+
+        this.shortcuts = Collections.unmodifiableMap(copy);
+        this.sequences = Collections.unmodifiableMap(sequencesCopy);
+        this.sequenceTimeoutNanos = sequenceTimeoutNanos;
+        this.repeatIntervalNanos = repeatIntervalNanos;
+        this.animationNanos = animationNanos;
+        this.dragSnap = dragSnap;
+        this.trie = SequenceTrie.compile(this.shortcuts, this.sequences);
+        this.layout = layout;
+        this.rules = rules;
+        this.profiles = Map.copyOf(profiles);
+
+        Map<String, SequenceTrie> tries = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<List<Integer>>>> entry : profiles.entrySet())
+            tries.put(entry.getKey(), compileProfile(entry.getValue()));
+        this.profileTries = tries;
+    }
+
+    /**
+     * Compiles the shortcuts of a profile together with the shortcuts of every other position. A profile shortcut
+     * replaces the shortcut of its position, and any other shortcut which starts with the same keys, in any order.
+     */
+    private SequenceTrie compileProfile(Map<String, List<List<Integer>>> profile) {
+
+        Map<String, List<Integer>> profileShortcuts = new LinkedHashMap<>();
+        Map<String, List<List<Integer>>> profileSequences = new LinkedHashMap<>();
+        Set<Set<Integer>> taken = new HashSet<>(); // first chords of the profile, as sets so that key order does not matter
+
+        for (Map.Entry<String, List<List<Integer>>> entry : profile.entrySet()) {
+            taken.add(Set.copyOf(entry.getValue().get(0)));
+            if (entry.getValue().size() == 1)
+                profileShortcuts.put(entry.getKey(), entry.getValue().get(0));
+            else
+                profileSequences.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, List<Integer>> entry : shortcuts.entrySet())
+            if (!profile.containsKey(entry.getKey()) && !taken.contains(Set.copyOf(entry.getValue())))
+                profileShortcuts.put(entry.getKey(), entry.getValue());
+        for (Map.Entry<String, List<List<Integer>>> entry : sequences.entrySet())
+            if (!profile.containsKey(entry.getKey()) && !taken.contains(Set.copyOf(entry.getValue().get(0))))
+                profileSequences.put(entry.getKey(), entry.getValue());
+
+        return SequenceTrie.compile(profileShortcuts, profileSequences);
+    }
+
+    /**
+     * Returns a snapshot with the given shortcuts and everything else of this one
+     */
+    Bindings withShortcuts(Map<String, List<Integer>> shortcuts) {
+        return new Bindings(shortcuts, sequences, sequenceTimeoutNanos, repeatIntervalNanos, animationNanos, dragSnap, layout, rules, profiles);
+    }
+
+    /**
+     * Read only view of the shortcuts, keyed by position
+     */
+    public Map<String, List<Integer>> getShortcuts() {
+        return shortcuts;
+    }
+
+    /**
+     * Returns a mutable copy of the shortcuts, which the configurator edits until it is submitted
+     */
+    public Map<String, List<Integer>> createDraft() {
+
+        Map<String, List<Integer>> draft = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : shortcuts.entrySet())
+            draft.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        return draft;
+    }
+
+    /**
+     * Read only view of the shortcuts made of several chords pressed one after another, keyed by position
+     */
+    public Map<String, List<List<Integer>>> getSequences() {
+        return sequences;
+    }
+
+    /**
+     * Time after the last chord of an unfinished sequence after which the sequence is abandoned
+     */
+    long getSequenceTimeoutNanos() {
+        return sequenceTimeoutNanos;
+    }
+
+    /**
+     * Minimum time between two firings of a shortcut which is held down, NO_REPEAT if it fires only once per press
+     */
+    long getRepeatIntervalNanos() {
+        return repeatIntervalNanos;
+    }
+
+    /**
+     * Time a window takes to slide to its target, NO_ANIMATION if windows jump there
+     */
+    long getAnimationNanos() {
+        return animationNanos;
+    }
+
+    /**
+     * Whether a window dragged by the user is put into the layout cell under the cursor when it is dropped
+     */
+    boolean isDragSnap() {
+        return dragSnap;
+    }
+
+    SequenceTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * Returns the trie of the profile of the process, or the trie of the shortcuts if the process has no profile
+     */
+    SequenceTrie getTrie(String processName) {
+        SequenceTrie profileTrie = processName == null ? null : profileTries.get(processName);
+        return profileTrie == null ? trie : profileTrie;
+    }
+
+    Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Per application placement rules, compiled for matching
+     */
+    WindowRules getRules() {
+        return rules;
+    }
+
+}
@@ -0,0 +1,42 @@
+package backend;
+
+/**
+ * Chords, the exact sets of keys held at the same time, kept as fixed size key code bitsets so that comparing
+ * and hashing them never allocates. The bitsets are the keys of the transitions in a SequenceTrie.
+ */
+final class ChordIndex {
+
+    static final int KEY_CODE_LIMIT = 256; // key codes outside [0, KEY_CODE_LIMIT) can not be part of a chord
+    static final int WORDS = KEY_CODE_LIMIT / Long.SIZE; // number of longs in a chord bitset
+
+    private ChordIndex() {
+    }
+
+    /**
+     * Adds the key code to the chord, key codes which can not be part of a chord are ignored
+     */
+    static void set(long[] chord, int keyCode) {
+        if (keyCode >= 0 && keyCode < KEY_CODE_LIMIT)
+            chord[keyCode >>> 6] |= 1L << keyCode;
+    }
+
+    /**
+     * Removes the key code from the chord
+     */
+    static void clear(long[] chord, int keyCode) {
+        if (keyCode >= 0 && keyCode < KEY_CODE_LIMIT)
+            chord[keyCode >>> 6] &= ~(1L << keyCode);
+    }
+
+    static boolean contains(long[] chord, int keyCode) {
+        return keyCode >= 0 && keyCode < KEY_CODE_LIMIT && (chord[keyCode >>> 6] & (1L << keyCode)) != 0;
+    }
+
+    static boolean isEmpty(long[] chord) {
+        for (long word : chord)
+            if (word != 0L)
+                return false;
+        return true;
+    }
+
+}
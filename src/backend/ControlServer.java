@@ -0,0 +1,331 @@
+package backend;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Iterator;
+
+/**
+ * Local control endpoint on a Unix domain socket (supported by Windows 10 and later), which lets scripts place windows
+ * without faking key presses. Commands go through the same action executor as the shortcuts.
+ *
+ * The protocol is one command per line, answered by one line in the same order, so a client may send many commands
+ * without waiting for the answers (pipelining). Listings end with a line saying "end".
+ *
+ *   ping                                  pong
+ *   move <position> [window]              ok | err ...      window defaults to the focused window
+ *   arrange [window]                      ok | err ...      arranges the monitor of the window
+ *   apply <window>=<position> ...         ok <count> | err ...
+ *   list                                  window <handle> <x> <y> <width> <height> ... end
+ *   positions                             position <name> ... end
+ *   quit                                  closes the connection
+ *
+ * Window handles are hexadecimal with a 0x prefix, or decimal.
+ */
+public class ControlServer {
+
+    private static final int BUFFER_SIZE = 64 * 1024; // also the longest accepted command
+
+    private final Path socketPath;
+    private final WindowManager windowManager;
+    private final WindowSystem windowSystem;
+    private volatile boolean running;
+    private Selector selector;
+    private Thread thread;
+
+    public ControlServer(Path socketPath, WindowManager windowManager) {
+        this.socketPath = socketPath;
+        this.windowManager = windowManager;
+        this.windowSystem = windowManager.getWindowSystem();
+    }
+
+    /**
+     * Binds the socket, replacing a stale socket file left by a previous run, and starts serving on its own thread
+     */
+    public void start() throws IOException {
+
+        Files.deleteIfExists(socketPath);
+
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        server.configureBlocking(false);
+
+        // only the current user may connect, on Windows the socket file inherits the access rights of its directory
+        try {
+            Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException err) {
+            // not a POSIX file system
+        }
+
+        selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+
+        thread = new Thread(() -> serve(server), "control-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops serving and waits until the socket is closed and its file removed
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        thread.join();
+    }
+
+    private void serve(ServerSocketChannel server) {
+
+        try (server; Selector serving = selector) {
+            while (running) {
+                serving.select();
+
+                Iterator<SelectionKey> keys = serving.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if (key.isAcceptable()) {
+                            accept(server);
+                        } else if (key.isWritable()) {
+                            flush(key);
+                        } else if (key.isReadable()) {
+                            read(key);
+                        }
+                    } catch (IOException err) {
+                        // the client went away
+                        close(key);
+                    }
+                }
+            }
+        } catch (IOException err) {
+            Log.error("Control socket failed", err);
+        } finally {
+            try {
+                Files.deleteIfExists(socketPath);
+            } catch (IOException err) {
+                Log.error("Control socket could not be removed", err);
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+
+        SocketChannel client = server.accept();
+        if (client == null)
+            return;
+
+        client.configureBlocking(false);
+        client.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    /**
+     * Reads what is available and answers every complete command in it
+     */
+    private void read(SelectionKey key) throws IOException {
+
+        SocketChannel client = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        if (connection.draining) {
+            connection.input.clear();
+        }
+        if (client.read(connection.input) == -1) {
+            close(key);
+            return;
+        }
+        if (connection.draining) {
+            return;
+        }
+
+        ByteBuffer input = connection.input;
+        input.flip();
+
+        int lineStart = input.position();
+        for (int i = lineStart; i < input.limit(); i++) {
+            if (input.get(i) != '\n')
+                continue;
+
+            String line = new String(input.array(), lineStart, i - lineStart, StandardCharsets.UTF_8).trim();
+            lineStart = i + 1;
+
+            if (line.equals("quit")) {
+                connection.closeAfterFlush = true;
+                break;
+            }
+            if (!line.isEmpty())
+                execute(line, connection.output);
+        }
+
+        input.position(lineStart);
+        input.compact();
+
+        if (!input.hasRemaining()) {
+            connection.output.append("err command too long\n");
+            connection.closeAfterFlush = true;
+        }
+
+        if (connection.output.length() > 0 || connection.closeAfterFlush) {
+            connection.pending = ByteBuffer.wrap(connection.output.toString().getBytes(StandardCharsets.UTF_8));
+            connection.output.setLength(0);
+            flush(key);
+        }
+    }
+
+    /**
+     * Writes pending answers, and stops reading commands until they are all written so that a client which does not
+     * read its answers can not make them pile up
+     */
+    private void flush(SelectionKey key) throws IOException {
+
+        Connection connection = (Connection) key.attachment();
+        ((SocketChannel) key.channel()).write(connection.pending);
+
+        if (connection.pending.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        } else if (connection.closeAfterFlush) {
+            // closing with commands left unread would reset the connection and could lose the answers,
+            // so only the sending side is closed and the rest is read and dropped until the client hangs up
+            ((SocketChannel) key.channel()).shutdownOutput();
+            connection.draining = true;
+            key.interestOps(SelectionKey.OP_READ);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException err) {
+            Log.error("Control connection could not be closed", err);
+        }
+    }
+
+    /**
+     * Executes one command and appends its answer
+     */
+    void execute(String line, StringBuilder output) {
+
+        String[] words = line.split("\\s+");
+
+        try {
+            switch (words[0]) {
+                case "ping" -> output.append("pong\n");
+                case "move" -> {
+                    if (words.length < 2) {
+                        output.append("err usage: move <position> [window]\n");
+                    } else {
+                        submit(words.length > 2 ? parseWindow(words[2]) : windowManager.getForegroundWindow(), words[1], output);
+                    }
+                }
+                case "arrange" -> submit(words.length > 1 ? parseWindow(words[1]) : windowManager.getForegroundWindow(),
+                        WindowManager.ARRANGE_ACTION, output);
+                case "apply" -> apply(words, output);
+                case "list" -> {
+                    for (long window : windowSystem.getTopLevelWindows()) {
+                        Rect rect = windowSystem.getWindowRect(window);
+                        output.append("window 0x").append(Long.toHexString(window)).append(' ').append(rect.left).append(' ')
+                                .append(rect.top).append(' ').append(rect.width()).append(' ').append(rect.height()).append('\n');
+                    }
+                    output.append("end\n");
+                }
+                case "positions" -> {
+                    Layout layout = ShortcutManager.getBindings().getLayout();
+                    for (int i = 0; i < layout.size(); i++)
+                        output.append("position ").append(layout.getCell(i).getName()).append('\n');
+                    output.append("position ").append(WindowManager.ARRANGE_ACTION).append('\n');
+                    output.append("position ").append(WindowManager.WORKSPACE_SAVE_ACTION).append('\n');
+                    output.append("position ").append(WindowManager.WORKSPACE_RESTORE_ACTION).append('\n');
+                    output.append("position ").append(WindowManager.TILE_ACTION).append('\n');
+                    output.append("end\n");
+                }
+                default -> output.append("err unknown command ").append(words[0]).append('\n');
+            }
+        } catch (NumberFormatException err) {
+            output.append("err invalid window handle\n");
+        }
+    }
+
+    private void submit(long window, String position, StringBuilder output) {
+
+        if (window == 0) {
+            output.append("err no window\n");
+        } else if (!WindowManager.isKnownPosition(position)) {
+            output.append("err unknown position ").append(position).append('\n');
+        } else if (!windowManager.submit(window, position)) {
+            output.append("err busy\n");
+        } else {
+            output.append("ok\n");
+        }
+    }
+
+    /**
+     * Queues several windows at once, all pairs are checked before any of them is queued
+     */
+    private void apply(String[] words, StringBuilder output) {
+
+        if (words.length < 2) {
+            output.append("err usage: apply <window>=<position> ...\n");
+            return;
+        }
+
+        long[] windows = new long[words.length - 1];
+        String[] positions = new String[words.length - 1];
+
+        for (int i = 1; i < words.length; i++) {
+            int separator = words[i].indexOf('=');
+            if (separator <= 0) {
+                output.append("err invalid pair ").append(words[i]).append('\n');
+                return;
+            }
+            windows[i - 1] = parseWindow(words[i].substring(0, separator));
+            positions[i - 1] = words[i].substring(separator + 1);
+
+            if (!WindowManager.isKnownPosition(positions[i - 1])) {
+                output.append("err unknown position ").append(positions[i - 1]).append('\n');
+                return;
+            }
+        }
+
+        int queued = 0;
+        for (int i = 0; i < windows.length; i++)
+            if (windowManager.submit(windows[i], positions[i]))
+                queued++;
+
+        if (queued == windows.length) {
+            output.append("ok ").append(queued).append('\n');
+        } else {
+            output.append("err busy ").append(windows.length - queued).append(" dropped\n");
+        }
+    }
+
+    private static long parseWindow(String text) {
+        return text.startsWith("0x") ? Long.parseUnsignedLong(text.substring(2), 16) : Long.parseLong(text);
+    }
+
+    /**
+     * Per client state, only touched by the server thread
+     */
+    private static class Connection {
+
+        private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+        private final StringBuilder output = new StringBuilder();
+        private ByteBuffer pending;
+        private boolean closeAfterFlush;
+        private boolean draining; // all answers were sent, what the client still sends is dropped
+    }
+
+}
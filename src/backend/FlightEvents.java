@@ -0,0 +1,154 @@
+package backend;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of a shortcut on its way from the key press to the window being moved, recorded with
+ * -XX:StartFlightRecording or jcmd JFR.start and shown in JDK Mission Control under "Windows Manager".
+ * While no recording is running an event is never filled in, and the JIT removes its allocation, so the helpers
+ * may be called on every shortcut. Times are measured with System.nanoTime() by the caller, like the latency metrics.
+ */
+public final class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    /**
+     * Records a shortcut which the held keys completed, on the key hook thread
+     */
+    static void keyMatched(String position, long matchNanos, boolean repeat) {
+
+        KeyMatched event = new KeyMatched();
+        if (event.shouldCommit()) {
+            event.position = position;
+            event.matchTime = matchNanos;
+            event.repeat = repeat;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records an action which the action executor applied to a window
+     */
+    static void actionDispatched(long window, String position, long queueNanos, long applyNanos, long totalNanos) {
+
+        ActionDispatched event = new ActionDispatched();
+        if (event.shouldCommit()) {
+            event.window = window;
+            event.position = position;
+            event.queueTime = queueNanos;
+            event.applyTime = applyNanos;
+            event.totalTime = totalNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a window which was given new bounds, callNanos is the time of the native call, shared by all windows of a batch
+     */
+    static void windowMoved(long window, String position, Rect target, long callNanos) {
+        windowMoved(window, position, target.left, target.top, target.width(), target.height(), callNanos);
+    }
+
+    static void windowMoved(long window, String position, int left, int top, int width, int height, long callNanos) {
+
+        WindowMoved event = new WindowMoved();
+        if (event.shouldCommit()) {
+            event.window = window;
+            event.position = position;
+            event.left = left;
+            event.top = top;
+            event.width = width;
+            event.height = height;
+            event.callTime = callNanos;
+            event.commit();
+        }
+    }
+
+    @Name("windowsmanager.KeyMatched")
+    @Label("Key Matched")
+    @Description("The held keys completed a shortcut")
+    @Category("Windows Manager")
+    @StackTrace(false)
+    static final class KeyMatched extends Event {
+
+        @Label("Position")
+        String position;
+
+        @Label("Match Time")
+        @Description("Converting the key code and advancing through the shortcuts")
+        @Timespan(Timespan.NANOSECONDS)
+        long matchTime;
+
+        @Label("Repeat")
+        @Description("Fired again by the auto-repeat of a held shortcut")
+        boolean repeat;
+    }
+
+    @Name("windowsmanager.ActionDispatched")
+    @Label("Action Dispatched")
+    @Description("The action executor applied a position to a window")
+    @Category("Windows Manager")
+    @StackTrace(false)
+    static final class ActionDispatched extends Event {
+
+        @Label("Window")
+        long window;
+
+        @Label("Position")
+        String position;
+
+        @Label("Queue Time")
+        @Description("Waiting in the queue of the action executor")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueTime;
+
+        @Label("Apply Time")
+        @Description("Finding the monitor, computing the target and moving the window")
+        @Timespan(Timespan.NANOSECONDS)
+        long applyTime;
+
+        @Label("Total Time")
+        @Description("From the key press until the window was moved")
+        @Timespan(Timespan.NANOSECONDS)
+        long totalTime;
+    }
+
+    @Name("windowsmanager.WindowMoved")
+    @Label("Window Moved")
+    @Description("A window was given new bounds")
+    @Category("Windows Manager")
+    @StackTrace(false)
+    static final class WindowMoved extends Event {
+
+        @Label("Window")
+        long window;
+
+        @Label("Position")
+        String position;
+
+        @Label("Left")
+        int left;
+
+        @Label("Top")
+        int top;
+
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+
+        @Label("Call Time")
+        @Description("The native positioning call, shared by all windows of a batch")
+        @Timespan(Timespan.NANOSECONDS)
+        long callTime;
+    }
+
+}
@@ -0,0 +1,79 @@
+package backend;
+
+/**
+ * Follows the foreground window through the window events of the window system, so that an action finds the window,
+ * its bounds and its monitor without asking the window system. They are published together as one immutable record,
+ * so a reader never combines the bounds of one window with the monitor of another.
+ * If the window system can not deliver window events, every read asks it instead.
+ */
+public class ForegroundTracker implements WindowSystem.WindowEventListener {
+
+    private final WindowSystem windowSystem;
+    private volatile ForegroundWindow current = ForegroundWindow.NONE;
+    private volatile boolean live;
+
+    public ForegroundTracker(WindowSystem windowSystem) {
+        this.windowSystem = windowSystem;
+    }
+
+    /**
+     * Subscribes to the window events and captures the window which has the focus right now
+     */
+    void start() {
+        live = windowSystem.addWindowEventListener(this);
+        foregroundChanged(windowSystem.getForegroundWindow());
+    }
+
+    /**
+     * Returns the latest record, without any window system call while window events are delivered
+     */
+    ForegroundWindow get() {
+        return live ? current : capture(windowSystem.getForegroundWindow());
+    }
+
+    // writers are the thread which delivers window events and the action executor, readers never lock
+
+    @Override
+    public synchronized void foregroundChanged(long window) {
+        current = capture(window);
+    }
+
+    @Override
+    public synchronized void locationChanged(long window) {
+        if (window == current.getWindow())
+            current = capture(window);
+    }
+
+    @Override
+    public synchronized void windowDestroyed(long window) {
+        if (window == current.getWindow())
+            current = ForegroundWindow.NONE;
+    }
+
+    /**
+     * Takes over bounds which were just applied to the window, since the location event arrives only after
+     * the action has finished, and a following action must not compare its target with the old bounds
+     */
+    synchronized void moved(long window, Rect rect, long monitor) {
+        ForegroundWindow foreground = current;
+        if (window == foreground.getWindow())
+            current = new ForegroundWindow(window, rect, monitor, foreground.isResizable());
+    }
+
+    /**
+     * Captures the monitor of the foreground window again, after monitors were attached, detached or rearranged
+     */
+    synchronized void displayChanged() {
+        current = capture(current.getWindow());
+    }
+
+    private ForegroundWindow capture(long window) {
+
+        if (window == 0)
+            return ForegroundWindow.NONE;
+
+        return new ForegroundWindow(window, windowSystem.getWindowRect(window), windowSystem.getMonitorFromWindow(window),
+                windowSystem.isResizable(window));
+    }
+
+}
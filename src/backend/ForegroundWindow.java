@@ -0,0 +1,45 @@
+package backend;
+
+/**
+ * Immutable record of the foreground window, its bounds, the monitor it is on and whether it can be resized,
+ * all taken together so that they always describe the same window at the same moment
+ */
+public final class ForegroundWindow {
+
+    static final ForegroundWindow NONE = new ForegroundWindow(0, new Rect(0, 0, 0, 0), 0, false);
+
+    private final long window;
+    private final Rect rect;
+    private final long monitor;
+    private final boolean resizable;
+
+    public ForegroundWindow(long window, Rect rect, long monitor, boolean resizable) {
+        this.window = window;
+        this.rect = rect;
+        this.monitor = monitor;
+        this.resizable = resizable;
+    }
+
+    /**
+     * Native HWND value, 0 if no window has the focus
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    public Rect getRect() {
+        return rect;
+    }
+
+    /**
+     * Native HMONITOR value of the monitor which contains the largest part of the window
+     */
+    public long getMonitor() {
+        return monitor;
+    }
+
+    public boolean isResizable() {
+        return resizable;
+    }
+
+}
@@ -0,0 +1,516 @@
+package backend;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.GDI32;
+import com.sun.jna.platform.win32.Kernel32;
+import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinBase;
+import com.sun.jna.platform.win32.WinDef;
+import com.sun.jna.platform.win32.WinNT;
+import com.sun.jna.platform.win32.WinUser;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.win32.StdCallLibrary;
+import com.sun.jna.win32.W32APIOptions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Window system backed by the real Win32 API through JNA
+ */
+public class JnaWindowSystem implements WindowSystem {
+
+    private static final User32 USER32 = User32.INSTANCE;
+
+    // window messages which are broadcast to top level windows when the display configuration changes
+    private static final int WM_DISPLAYCHANGE = 0x007E;
+    private static final int WM_SETTINGCHANGE = 0x001A;
+    private static final int SPI_SETWORKAREA = 0x002F;
+
+    // window events passed on to the listeners, only those of whole windows
+    private static final int EVENT_SYSTEM_FOREGROUND = 0x0003;
+    private static final int EVENT_SYSTEM_MOVESIZESTART = 0x000A;
+    private static final int EVENT_SYSTEM_MOVESIZEEND = 0x000B;
+    private static final int EVENT_SYSTEM_MINIMIZESTART = 0x0016;
+    private static final int EVENT_SYSTEM_MINIMIZEEND = 0x0017;
+    private static final int EVENT_OBJECT_DESTROY = 0x8001;
+    private static final int EVENT_OBJECT_SHOW = 0x8002;
+    private static final int EVENT_OBJECT_HIDE = 0x8003;
+    private static final int EVENT_OBJECT_LOCATIONCHANGE = 0x800B;
+    private static final int EVENT_OBJECT_NAMECHANGE = 0x800C;
+    private static final int WINEVENT_OUTOFCONTEXT = 0x0000;
+    private static final int OBJID_WINDOW = 0;
+    private static final int CHILDID_SELF = 0;
+
+    private static final int PROCESS_QUERY_LIMITED_INFORMATION = 0x1000;
+    private static final int PROCESS_CACHE_SIZE = 64; // process handles kept open, one per cached process
+    private static final long UNWATCHED_PROCESS_NANOS = 10_000_000_000L; // how long a process whose exit can not be seen stays cached
+    private static final int MAX_CLASS_NAME = 256;
+    private static final int GA_ROOT = 2;
+
+    private static final int VREFRESH = 116; // GetDeviceCaps index of the vertical refresh rate
+
+    private static final int WS_MINIMIZE = 0x20000000;
+    private static final int WS_EX_TOOLWINDOW = 0x00000080;
+
+    private volatile Runnable displayChangeListener;
+    private final List<WindowEventListener> windowEventListeners = new CopyOnWriteArrayList<>();
+    private Thread eventThread;
+    private WinUser.WindowProc displayEventProc; // referenced so that the callback is not garbage collected
+    private WinEvents.WinEventProc winEventProc; // referenced so that the callback is not garbage collected
+    private final CountDownLatch winEventHooksInstalled = new CountDownLatch(1);
+    private volatile boolean winEventsAvailable;
+
+    // executable names by process id, least recently used first. The handle of a cached process is kept open, so Windows
+    // can not give its id to a new process while the entry exists, and the handle tells whether the process has exited.
+    private final Map<Integer, CachedProcess> processNames = new LinkedHashMap<>(PROCESS_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedProcess> eldest) {
+            if (size() <= PROCESS_CACHE_SIZE)
+                return false;
+            eldest.getValue().close();
+            return true;
+        }
+    };
+
+    @Override
+    public long getForegroundWindow() {
+        return toHandle(USER32.GetForegroundWindow());
+    }
+
+    @Override
+    public Rect getWindowRect(long window) {
+        WinDef.RECT windowRect = new WinDef.RECT();
+        USER32.GetWindowRect(toHwnd(window), windowRect);
+        return toRect(windowRect);
+    }
+
+    @Override
+    public boolean isResizable(long window) {
+        int style = USER32.GetWindowLong(toHwnd(window), WinUser.GWL_STYLE);
+        return (style & WinUser.WS_SIZEBOX) != 0;
+    }
+
+    /**
+     * Looks the process of the window up in the cache of recently seen processes, only a process which is not
+     * in it or has exited meanwhile is opened and queried. A process which can not be queried is cached as well,
+     * since the windows of an elevated program ask again on every focus change.
+     */
+    @Override
+    public String getProcessName(long window) {
+
+        IntByReference processId = new IntByReference();
+        USER32.GetWindowThreadProcessId(toHwnd(window), processId);
+        int id = processId.getValue();
+
+        synchronized (processNames) {
+            CachedProcess cached = processNames.get(id);
+            if (cached != null) {
+                if (!cached.isStale()) {
+                    return cached.name;
+                }
+                processNames.remove(id); // the process has exited, the id may belong to another process by now
+                cached.close();
+            }
+        }
+
+        WinNT.HANDLE process = Kernel32.INSTANCE.OpenProcess(PROCESS_QUERY_LIMITED_INFORMATION | WinNT.SYNCHRONIZE, false, id);
+        String name = "";
+        if (process != null) {
+            char[] path = new char[WinDef.MAX_PATH];
+            IntByReference length = new IntByReference(path.length);
+            if (Kernel32.INSTANCE.QueryFullProcessImageName(process, 0, path, length)) {
+                String fullPath = new String(path, 0, length.getValue());
+                name = fullPath.substring(fullPath.lastIndexOf('\\') + 1).toLowerCase(Locale.ROOT);
+            }
+        } else {
+            // elevated processes can not be opened by a normal user, their windows have no process name,
+            // but a handle which can only wait for the process may still be allowed to see when it exits
+            process = Kernel32.INSTANCE.OpenProcess(WinNT.SYNCHRONIZE, false, id);
+        }
+
+        synchronized (processNames) {
+            CachedProcess previous = processNames.put(id, new CachedProcess(process, name, System.nanoTime()));
+            if (previous != null) {
+                previous.close(); // another thread cached the same process meanwhile
+            }
+        }
+        return name;
+    }
+
+    @Override
+    public String getClassName(long window) {
+        char[] className = new char[MAX_CLASS_NAME];
+        int length = USER32.GetClassName(toHwnd(window), className, className.length);
+        return new String(className, 0, length);
+    }
+
+    @Override
+    public String getTitle(long window) {
+
+        WinDef.HWND hwnd = toHwnd(window);
+        int length = USER32.GetWindowTextLength(hwnd);
+        if (length == 0) {
+            return "";
+        }
+
+        char[] title = new char[length + 1];
+        return new String(title, 0, USER32.GetWindowText(hwnd, title, title.length));
+    }
+
+    @Override
+    public boolean setWindowPosition(long window, int x, int y, int width, int height) {
+        return USER32.SetWindowPos(toHwnd(window), null, x, y, width, height, User32.SWP_NOACTIVATE);
+    }
+
+    @Override
+    public boolean setWindowPositions(long[] windows, Rect[] targets, int count) {
+
+        if (count == 0) {
+            return true;
+        }
+
+        int flags = User32.SWP_NOACTIVATE | User32.SWP_NOZORDER;
+        WinNT.HANDLE positions = DeferredUser32.INSTANCE.BeginDeferWindowPos(count);
+
+        for (int i = 0; i < count && positions != null; i++) {
+            Rect target = targets[i];
+            // DeferWindowPos returns the updated handle, or null after destroying the whole transaction
+            positions = DeferredUser32.INSTANCE.DeferWindowPos(positions, toHwnd(windows[i]), null,
+                    target.left, target.top, target.width(), target.height(), flags);
+        }
+
+        if (positions != null) {
+            return DeferredUser32.INSTANCE.EndDeferWindowPos(positions);
+        }
+
+        // the transaction failed (for example one of the windows was closed meanwhile), move the windows one by one
+        boolean allMoved = true;
+        for (int i = 0; i < count; i++) {
+            Rect target = targets[i];
+            allMoved &= USER32.SetWindowPos(toHwnd(windows[i]), null, target.left, target.top, target.width(), target.height(), flags);
+        }
+        return allMoved;
+    }
+
+    @Override
+    public boolean setWindowBounds(long[] windows, int[] bounds, int count) {
+
+        if (count == 0) {
+            return true;
+        }
+
+        int flags = User32.SWP_NOACTIVATE | User32.SWP_NOZORDER;
+        WinNT.HANDLE positions = DeferredUser32.INSTANCE.BeginDeferWindowPos(count);
+
+        for (int i = 0; i < count && positions != null; i++) {
+            positions = DeferredUser32.INSTANCE.DeferWindowPos(positions, toHwnd(windows[i]), null,
+                    bounds[i * 4], bounds[i * 4 + 1], bounds[i * 4 + 2], bounds[i * 4 + 3], flags);
+        }
+
+        if (positions != null) {
+            return DeferredUser32.INSTANCE.EndDeferWindowPos(positions);
+        }
+
+        boolean allMoved = true;
+        for (int i = 0; i < count; i++) {
+            allMoved &= USER32.SetWindowPos(toHwnd(windows[i]), null, bounds[i * 4], bounds[i * 4 + 1], bounds[i * 4 + 2],
+                    bounds[i * 4 + 3], flags);
+        }
+        return allMoved;
+    }
+
+    @Override
+    public long[] getTopLevelWindows() {
+
+        List<Long> windows = new ArrayList<>();
+
+        USER32.EnumWindows((hwnd, data) -> {
+            if (isArrangeable(hwnd)) {
+                windows.add(toHandle(hwnd));
+            }
+            return true; // continue enumeration
+        }, null);
+
+        return windows.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public boolean isTopLevelWindow(long window) {
+        WinDef.HWND hwnd = toHwnd(window);
+        return toHandle(USER32.GetAncestor(hwnd, GA_ROOT)) == window && isArrangeable(hwnd);
+    }
+
+    /**
+     * Skips hidden, minimized, tool and untitled windows, which are not arranged
+     */
+    private static boolean isArrangeable(WinDef.HWND hwnd) {
+
+        int style = USER32.GetWindowLong(hwnd, WinUser.GWL_STYLE);
+        int exStyle = USER32.GetWindowLong(hwnd, WinUser.GWL_EXSTYLE);
+
+        return USER32.IsWindowVisible(hwnd) && (style & WS_MINIMIZE) == 0 && (exStyle & WS_EX_TOOLWINDOW) == 0
+                && USER32.GetWindowTextLength(hwnd) > 0;
+    }
+
+    @Override
+    public Monitor[] getMonitors() {
+
+        List<Monitor> monitors = new ArrayList<>();
+
+        USER32.EnumDisplayMonitors(null, null, (hMonitor, hdc, rect, lParam) -> {
+
+            WinUser.MONITORINFOEX monitorInfo = new WinUser.MONITORINFOEX();
+            USER32.GetMonitorInfo(hMonitor, monitorInfo);
+            monitors.add(new Monitor(Pointer.nativeValue(hMonitor.getPointer()), toRect(monitorInfo.rcMonitor), toRect(monitorInfo.rcWork),
+                    getRefreshRate(Native.toString(monitorInfo.szDevice))));
+
+            return 1; // continue enumeration
+        }, new WinDef.LPARAM(0));
+
+        return monitors.toArray(new Monitor[0]);
+    }
+
+    /**
+     * Returns the refresh rate of the display device, like \\.\DISPLAY1, or the default if the driver reports
+     * the hardware default (0 or 1) or the device can not be opened
+     */
+    private static int getRefreshRate(String device) {
+
+        WinDef.HDC hdc = DisplayGdi32.INSTANCE.CreateDC(device, device, null, null);
+        if (hdc == null) {
+            return Monitor.DEFAULT_REFRESH_RATE;
+        }
+
+        int refreshRate = GDI32.INSTANCE.GetDeviceCaps(hdc, VREFRESH);
+        GDI32.INSTANCE.DeleteDC(hdc);
+        return refreshRate > 1 ? refreshRate : Monitor.DEFAULT_REFRESH_RATE;
+    }
+
+    @Override
+    public long getMonitorFromWindow(long window) {
+        WinUser.HMONITOR monitor = USER32.MonitorFromWindow(toHwnd(window), WinUser.MONITOR_DEFAULTTONEAREST);
+        return monitor == null ? 0 : Pointer.nativeValue(monitor.getPointer());
+    }
+
+    @Override
+    public void setDisplayChangeListener(Runnable listener) {
+        displayChangeListener = listener;
+        startEventThread();
+    }
+
+    /**
+     * Installs the window event hooks on the event thread, and waits until it is known whether they are available
+     */
+    @Override
+    public boolean addWindowEventListener(WindowEventListener listener) {
+
+        windowEventListeners.add(listener);
+        startEventThread();
+
+        try {
+            winEventHooksInstalled.await();
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return winEventsAvailable;
+    }
+
+    private synchronized void startEventThread() {
+
+        if (eventThread == null) {
+            eventThread = new Thread(this::runEventLoop, "window-events");
+            eventThread.setDaemon(true);
+            eventThread.start();
+        }
+    }
+
+    /**
+     * Creates the receivers of display and window events and pumps their messages until the application exits.
+     * Both need a message loop on the thread which created them.
+     */
+    private void runEventLoop() {
+
+        boolean displayEvents;
+        try {
+            displayEvents = createDisplayEventWindow();
+            winEventsAvailable = installWinEventHooks();
+        } finally {
+            winEventHooksInstalled.countDown(); // also when the hooks failed, so that the listener is not waiting forever
+        }
+
+        if (!displayEvents && !winEventsAvailable) {
+            return;
+        }
+
+        WinUser.MSG msg = new WinUser.MSG();
+        while (USER32.GetMessage(msg, null, 0, 0) > 0) {
+            USER32.TranslateMessage(msg);
+            USER32.DispatchMessage(msg);
+        }
+    }
+
+    /**
+     * Creates a hidden top level window, which receives the broadcast display and setting change messages
+     */
+    private boolean createDisplayEventWindow() {
+
+        displayEventProc = (hwnd, uMsg, wParam, lParam) -> {
+
+            boolean workAreaChanged = uMsg == WM_SETTINGCHANGE && wParam != null && wParam.intValue() == SPI_SETWORKAREA;
+            Runnable listener = displayChangeListener;
+
+            if ((uMsg == WM_DISPLAYCHANGE || workAreaChanged) && listener != null) {
+                listener.run();
+            }
+            return USER32.DefWindowProc(hwnd, uMsg, wParam, lParam);
+        };
+
+        WinDef.HINSTANCE hInstance = Kernel32.INSTANCE.GetModuleHandle("");
+
+        WinUser.WNDCLASSEX windowClass = new WinUser.WNDCLASSEX();
+        windowClass.hInstance = hInstance;
+        windowClass.lpszClassName = "WindowsManagerDisplayEvents";
+        windowClass.lpfnWndProc = displayEventProc;
+        USER32.RegisterClassEx(windowClass);
+
+        // not a message only window, those do not receive broadcast messages
+        WinDef.HWND hiddenWindow = USER32.CreateWindowEx(0, windowClass.lpszClassName, "", 0,
+                0, 0, 0, 0, null, null, hInstance, null);
+
+        if (hiddenWindow == null) {
+            Log.warn("Display change notifications are not available");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hooks the window events of all processes which the listeners are told about. The events are delivered
+     * out of context, through the message loop of this thread, so no code is injected into other processes.
+     */
+    private boolean installWinEventHooks() {
+
+        winEventProc = (hook, event, hwnd, idObject, idChild, eventThreadId, eventTime) -> {
+
+            // the same object events are sent for carets, cursors, scroll bars and other parts of windows, which are left out
+            if (hwnd == null || (event >= EVENT_OBJECT_DESTROY && (idObject != OBJID_WINDOW || idChild != CHILDID_SELF))) {
+                return;
+            }
+
+            long window = Pointer.nativeValue(hwnd);
+            for (WindowEventListener listener : windowEventListeners) {
+                switch (event) {
+                    case EVENT_SYSTEM_FOREGROUND -> listener.foregroundChanged(window);
+                    case EVENT_OBJECT_LOCATIONCHANGE -> listener.locationChanged(window);
+                    case EVENT_SYSTEM_MOVESIZESTART -> listener.moveStarted(window);
+                    case EVENT_SYSTEM_MOVESIZEEND -> listener.moveEnded(window);
+                    case EVENT_OBJECT_SHOW, EVENT_SYSTEM_MINIMIZEEND -> listener.windowShown(window);
+                    case EVENT_OBJECT_HIDE, EVENT_SYSTEM_MINIMIZESTART -> listener.windowHidden(window);
+                    case EVENT_OBJECT_DESTROY -> listener.windowDestroyed(window);
+                    case EVENT_OBJECT_NAMECHANGE -> listener.titleChanged(window);
+                }
+            }
+        };
+
+        // ranges of consecutive events share a hook, the events in between are few
+        int[][] eventRanges = {{EVENT_SYSTEM_FOREGROUND, EVENT_SYSTEM_FOREGROUND}, {EVENT_SYSTEM_MOVESIZESTART, EVENT_SYSTEM_MOVESIZEEND},
+                {EVENT_SYSTEM_MINIMIZESTART, EVENT_SYSTEM_MINIMIZEEND}, {EVENT_OBJECT_DESTROY, EVENT_OBJECT_HIDE},
+                {EVENT_OBJECT_LOCATIONCHANGE, EVENT_OBJECT_NAMECHANGE}};
+        for (int[] range : eventRanges) {
+            if (WinEvents.INSTANCE.SetWinEventHook(range[0], range[1], null, winEventProc, 0, 0, WINEVENT_OUTOFCONTEXT) == null) {
+                Log.warn("Window events are not available, the foreground window is looked up on every action");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deferred window positioning functions, which are not part of the JNA platform User32 mapping
+     */
+    private interface DeferredUser32 extends StdCallLibrary {
+
+        DeferredUser32 INSTANCE = Native.load("user32", DeferredUser32.class, W32APIOptions.DEFAULT_OPTIONS);
+
+        WinNT.HANDLE BeginDeferWindowPos(int nNumWindows);
+
+        WinNT.HANDLE DeferWindowPos(WinNT.HANDLE hWinPosInfo, WinDef.HWND hWnd, WinDef.HWND hWndInsertAfter,
+                                    int x, int y, int cx, int cy, int uFlags);
+
+        boolean EndDeferWindowPos(WinNT.HANDLE hWinPosInfo);
+    }
+
+    private interface DisplayGdi32 extends StdCallLibrary {
+
+        DisplayGdi32 INSTANCE = Native.load("gdi32", DisplayGdi32.class, W32APIOptions.DEFAULT_OPTIONS);
+
+        WinDef.HDC CreateDC(String lpszDriver, String lpszDevice, String lpszOutput, Pointer lpInitData);
+    }
+
+    /**
+     * Window event hook with a callback of plain values, unlike the JNA platform mapping which wraps every argument
+     * into a new object, since location changes arrive for every window on the desktop which moves
+     */
+    private interface WinEvents extends StdCallLibrary {
+
+        WinEvents INSTANCE = Native.load("user32", WinEvents.class, W32APIOptions.DEFAULT_OPTIONS);
+
+        WinNT.HANDLE SetWinEventHook(int eventMin, int eventMax, WinDef.HMODULE hmodWinEventProc, WinEventProc callback,
+                                     int idProcess, int idThread, int dwFlags);
+
+        interface WinEventProc extends StdCallCallback {
+            void callback(Pointer hWinEventHook, int event, Pointer hwnd, int idObject, int idChild, int idEventThread, int dwmsEventTime);
+        }
+    }
+
+    /**
+     * Executable name of a process, with the open handle which keeps the process id from being reused.
+     * The name is empty for a process which could not be queried.
+     */
+    private static final class CachedProcess {
+
+        private final WinNT.HANDLE handle; // null if not even waiting for the process is allowed
+        private final String name;
+        private final long cachedNanos;
+
+        private CachedProcess(WinNT.HANDLE handle, String name, long cachedNanos) {
+            this.handle = handle;
+            this.name = name;
+            this.cachedNanos = cachedNanos;
+        }
+
+        /**
+         * True once the process has exited, or for a process without a handle once it was cached for a while
+         */
+        private boolean isStale() {
+            if (handle == null)
+                return System.nanoTime() - cachedNanos > UNWATCHED_PROCESS_NANOS;
+            return Kernel32.INSTANCE.WaitForSingleObject(handle, 0) == WinBase.WAIT_OBJECT_0;
+        }
+
+        private void close() {
+            if (handle != null)
+                Kernel32.INSTANCE.CloseHandle(handle);
+        }
+    }
+
+    static WinDef.HWND toHwnd(long window) {
+        return new WinDef.HWND(new Pointer(window));
+    }
+
+    static long toHandle(WinDef.HWND window) {
+        return window == null ? 0 : Pointer.nativeValue(window.getPointer());
+    }
+
+    private static Rect toRect(WinDef.RECT rect) {
+        return new Rect(rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+}
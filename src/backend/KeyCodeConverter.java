@@ -1,46 +1,82 @@
 package backend;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
 
 /**
  * Converts JNH (JNativeHook) key codes to JNA (Java Native Access) key codes.
  * This class provides methods to map key codes captured from JNH to those used by JNA for window movement operations.
+ * JNA key codes are the Windows virtual-key codes, which are also the codes saved in the shortcuts file.
+ *
+ * Both directions are dense primitive tables, so converting a key code on the global hook thread is a single array
+ * load without boxing or hashing.
  */
 public class KeyCodeConverter {
 
-    static final Map<Integer, Integer> jnativehookToJNA = new HashMap<>();
+    // JNH key codes are 0x00XX for regular keys and 0x0EXX or 0xE0XX for extended keys, which are folded into the upper half
+    private static final int JNH_TABLE_SIZE = 0x200;
+    private static final int JNA_TABLE_SIZE = 0x100;
+
+    private static final int[] jnativehookToJNA = new int[JNH_TABLE_SIZE];
+    private static final int[] jnaToJnativehook = new int[JNA_TABLE_SIZE];
+
+    // JNA (Java Native Access) codes, only the ones which are not plain ASCII letters or digits
+    private static final int JNA_BACKSPACE = 0x08;
+    private static final int JNA_TAB = 0x09;
+    private static final int JNA_CLEAR = 0x0C;
+    private static final int JNA_ENTER = 0x0D;
+    public static final int JNA_SHIFT = 0x10;
+    public static final int JNA_CONTROL = 0x11;
+    public static final int JNA_ALT = 0x12;
+    private static final int JNA_PAUSE = 0x13;
+    private static final int JNA_CAPS_LOCK = 0x14;
+    private static final int JNA_ESCAPE = 0x1B;
+    private static final int JNA_SPACE = 0x20;
+    private static final int JNA_PAGE_UP = 0x21;
+    private static final int JNA_PAGE_DOWN = 0x22;
+    private static final int JNA_END = 0x23;
+    private static final int JNA_HOME = 0x24;
+    private static final int JNA_LEFT = 0x25;
+    private static final int JNA_UP = 0x26;
+    private static final int JNA_RIGHT = 0x27;
+    private static final int JNA_DOWN = 0x28;
+    private static final int JNA_PRINTSCREEN = 0x2C;
+    private static final int JNA_INSERT = 0x2D;
+    private static final int JNA_DELETE = 0x2E;
+    public static final int JNA_WINDOWS = 0x5B;
+    private static final int JNA_CONTEXT_MENU = 0x5D;
+    private static final int JNA_NUMPAD_0 = 0x60;
+    private static final int JNA_MULTIPLY = 0x6A;
+    private static final int JNA_ADD = 0x6B;
+    private static final int JNA_SUBTRACT = 0x6D;
+    private static final int JNA_DECIMAL = 0x6E;
+    private static final int JNA_DIVIDE = 0x6F;
+    private static final int JNA_F1 = 0x70;
+    private static final int JNA_F13 = 0x7C;
+    private static final int JNA_NUM_LOCK = 0x90;
+    private static final int JNA_SCROLL_LOCK = 0x91;
+    private static final int JNA_VOLUME_MUTE = 0xAD;
+    private static final int JNA_VOLUME_DOWN = 0xAE;
+    private static final int JNA_VOLUME_UP = 0xAF;
+    private static final int JNA_MEDIA_NEXT = 0xB0;
+    private static final int JNA_MEDIA_PREVIOUS = 0xB1;
+    private static final int JNA_MEDIA_STOP = 0xB2;
+    private static final int JNA_MEDIA_PLAY = 0xB3;
+    private static final int JNA_SEMICOLON = 0xBA;
+    private static final int JNA_EQUALS = 0xBB;
+    private static final int JNA_COMMA = 0xBC;
+    private static final int JNA_MINUS = 0xBD;
+    private static final int JNA_PERIOD = 0xBE;
+    private static final int JNA_SLASH = 0xBF;
+    private static final int JNA_BACKQUOTE = 0xC0;
+    private static final int JNA_OPEN_BRACKET = 0xDB;
+    private static final int JNA_BACK_SLASH = 0xDC;
+    private static final int JNA_CLOSE_BRACKET = 0xDD;
+    private static final int JNA_QUOTE = 0xDE;
+    private static final int JNA_LESSER_GREATER = 0xE2;
 
     // JNH (JNativeHook) codes (A-Z)
-    private static final int JNA_A = 65;
-    private static final int JNA_B = 66;
-    private static final int JNA_C = 67;
-    private static final int JNA_D = 68;
-    private static final int JNA_E = 69;
-    private static final int JNA_F = 70;
-    private static final int JNA_G = 71;
-    private static final int JNA_H = 72;
-    private static final int JNA_I = 73;
-    private static final int JNA_J = 74;
-    private static final int JNA_K = 75;
-    private static final int JNA_L = 76;
-    private static final int JNA_M = 77;
-    private static final int JNA_N = 78;
-    private static final int JNA_O = 79;
-    private static final int JNA_P = 80;
-    private static final int JNA_Q = 81;
-    private static final int JNA_R = 82;
-    private static final int JNA_S = 83;
-    private static final int JNA_T = 84;
-    private static final int JNA_U = 85;
-    private static final int JNA_V = 86;
-    private static final int JNA_W = 87;
-    private static final int JNA_X = 88;
-    private static final int JNA_Y = 89;
-    private static final int JNA_Z = 90;
-    private static final int JNA_ALT = 18;
-
-    // JNA (Java Native Access) codes (A-Z)
     public static final int JNH_A = 30;
     public static final int JNH_B = 48;
     public static final int JNH_C = 46;
@@ -72,40 +108,192 @@ public class KeyCodeConverter {
     // map JNH key codes to JNA key codes
     static {
 
-        jnativehookToJNA.put(JNH_Q, JNA_Q);
-        jnativehookToJNA.put(JNH_W, JNA_W);
-        jnativehookToJNA.put(JNH_E, JNA_E);
-        jnativehookToJNA.put(JNH_R, JNA_R);
-        jnativehookToJNA.put(JNH_T, JNA_T);
-        jnativehookToJNA.put(JNH_Y, JNA_Y);
-        jnativehookToJNA.put(JNH_U, JNA_U);
-        jnativehookToJNA.put(JNH_I, JNA_I);
-        jnativehookToJNA.put(JNH_O, JNA_O);
-        jnativehookToJNA.put(JNH_P, JNA_P);
-        jnativehookToJNA.put(JNH_A, JNA_A);
-        jnativehookToJNA.put(JNH_S, JNA_S);
-        jnativehookToJNA.put(JNH_D, JNA_D);
-        jnativehookToJNA.put(JNH_F, JNA_F);
-        jnativehookToJNA.put(JNH_G, JNA_G);
-        jnativehookToJNA.put(JNH_H, JNA_H);
-        jnativehookToJNA.put(JNH_J, JNA_J);
-        jnativehookToJNA.put(JNH_K, JNA_K);
-        jnativehookToJNA.put(JNH_L, JNA_L);
-        jnativehookToJNA.put(JNH_Z, JNA_Z);
-        jnativehookToJNA.put(JNH_X, JNA_X);
-        jnativehookToJNA.put(JNH_C, JNA_C);
-        jnativehookToJNA.put(JNH_V, JNA_V);
-        jnativehookToJNA.put(JNH_B, JNA_B);
-        jnativehookToJNA.put(JNH_N, JNA_N);
-        jnativehookToJNA.put(JNH_M, JNA_M);
-        jnativehookToJNA.put(JNH_ALT, JNA_ALT);
+        Arrays.fill(jnativehookToJNA, -1);
+        Arrays.fill(jnaToJnativehook, -1);
+
+        // letters, in keyboard row order
+        map(JNH_Q, 'Q'); map(JNH_W, 'W'); map(JNH_E, 'E'); map(JNH_R, 'R'); map(JNH_T, 'T');
+        map(JNH_Y, 'Y'); map(JNH_U, 'U'); map(JNH_I, 'I'); map(JNH_O, 'O'); map(JNH_P, 'P');
+        map(JNH_A, 'A'); map(JNH_S, 'S'); map(JNH_D, 'D'); map(JNH_F, 'F'); map(JNH_G, 'G');
+        map(JNH_H, 'H'); map(JNH_J, 'J'); map(JNH_K, 'K'); map(JNH_L, 'L');
+        map(JNH_Z, 'Z'); map(JNH_X, 'X'); map(JNH_C, 'C'); map(JNH_V, 'V'); map(JNH_B, 'B');
+        map(JNH_N, 'N'); map(JNH_M, 'M');
+
+        // digits 1-9 are consecutive JNH codes starting at 0x02, followed by 0
+        for (int digit = 1; digit <= 9; digit++)
+            map(0x01 + digit, '0' + digit);
+        map(0x0B, '0');
+
+        // function keys, F1-F10 and F16-F24 are consecutive in both code sets
+        for (int i = 0; i < 10; i++)
+            map(0x3B + i, JNA_F1 + i);
+        map(0x57, JNA_F1 + 10);
+        map(0x58, JNA_F1 + 11);
+        map(0x5B, JNA_F13);
+        map(0x5C, JNA_F13 + 1);
+        map(0x5D, JNA_F13 + 2);
+        for (int i = 0; i < 9; i++)
+            map(0x63 + i, JNA_F13 + 3 + i);
+
+        // modifiers, both variants map to the same code because the configurator can not tell them apart,
+        // the left variant is mapped first so that it is used for display
+        map(0x2A, JNA_SHIFT);
+        map(0x36, JNA_SHIFT);
+        map(0x1D, JNA_CONTROL);
+        map(0x0E1D, JNA_CONTROL);
+        map(JNH_ALT, JNA_ALT);
+        map(0x0E38, JNA_ALT);
+        map(0x0E5B, JNA_WINDOWS);
+        map(0x0E5C, JNA_WINDOWS);
+        map(0x0E5D, JNA_CONTEXT_MENU);
+
+        // editing and navigation
+        map(0x01, JNA_ESCAPE);
+        map(0x0E, JNA_BACKSPACE);
+        map(0x0F, JNA_TAB);
+        map(0x1C, JNA_ENTER);
+        map(0x39, JNA_SPACE);
+        map(0x3A, JNA_CAPS_LOCK);
+        map(0x0E37, JNA_PRINTSCREEN);
+        map(0x46, JNA_SCROLL_LOCK);
+        map(0x0E45, JNA_PAUSE);
+        map(0x0E52, JNA_INSERT);
+        map(0x0E53, JNA_DELETE);
+        map(0x0E47, JNA_HOME);
+        map(0x0E4F, JNA_END);
+        map(0x0E49, JNA_PAGE_UP);
+        map(0x0E51, JNA_PAGE_DOWN);
+        map(0xE048, JNA_UP);
+        map(0xE050, JNA_DOWN);
+        map(0xE04B, JNA_LEFT);
+        map(0xE04D, JNA_RIGHT);
+        map(0xE04C, JNA_CLEAR);
+
+        // punctuation
+        map(0x0C, JNA_MINUS);
+        map(0x0D, JNA_EQUALS);
+        map(0x1A, JNA_OPEN_BRACKET);
+        map(0x1B, JNA_CLOSE_BRACKET);
+        map(0x2B, JNA_BACK_SLASH);
+        map(0x27, JNA_SEMICOLON);
+        map(0x28, JNA_QUOTE);
+        map(0x29, JNA_BACKQUOTE);
+        map(0x33, JNA_COMMA);
+        map(0x34, JNA_PERIOD);
+        map(0x35, JNA_SLASH);
+        map(0x56, JNA_LESSER_GREATER);
+
+        // numpad, with num lock off the keys report the extended navigation codes mapped above
+        map(0x52, JNA_NUMPAD_0);
+        map(0x4F, JNA_NUMPAD_0 + 1);
+        map(0x50, JNA_NUMPAD_0 + 2);
+        map(0x51, JNA_NUMPAD_0 + 3);
+        map(0x4B, JNA_NUMPAD_0 + 4);
+        map(0x4C, JNA_NUMPAD_0 + 5);
+        map(0x4D, JNA_NUMPAD_0 + 6);
+        map(0x47, JNA_NUMPAD_0 + 7);
+        map(0x48, JNA_NUMPAD_0 + 8);
+        map(0x49, JNA_NUMPAD_0 + 9);
+        map(0x45, JNA_NUM_LOCK);
+        map(0x0E35, JNA_DIVIDE);
+        map(0x37, JNA_MULTIPLY);
+        map(0x4A, JNA_SUBTRACT);
+        map(0x4E, JNA_ADD);
+        map(0x53, JNA_DECIMAL);
+        map(0x0E1C, JNA_ENTER);
+
+        // media
+        map(0xE020, JNA_VOLUME_MUTE);
+        map(0xE02E, JNA_VOLUME_DOWN);
+        map(0xE030, JNA_VOLUME_UP);
+        map(0xE019, JNA_MEDIA_NEXT);
+        map(0xE010, JNA_MEDIA_PREVIOUS);
+        map(0xE024, JNA_MEDIA_STOP);
+        map(0xE022, JNA_MEDIA_PLAY);
+    }
+
+    /**
+     * Adds a JNH to JNA pair to the forward table, and to the reverse table if the JNA code has no JNH code yet
+     */
+    private static void map(int jnativehookKeyCode, int jnaKeyCode) {
+        jnativehookToJNA[tableIndex(jnativehookKeyCode)] = jnaKeyCode;
+        if (jnaToJnativehook[jnaKeyCode] == -1)
+            jnaToJnativehook[jnaKeyCode] = jnativehookKeyCode;
+    }
+
+    /**
+     * Folds a JNH key code into the forward table, extended codes (0x0EXX, 0xE0XX) share the upper half
+     */
+    private static int tableIndex(int jnativehookKeyCode) {
+        return jnativehookKeyCode > 0xFF ? 0x100 | (jnativehookKeyCode & 0xFF) : jnativehookKeyCode;
     }
 
     /**
      * Convert JNativeHook key codes to JNA
      */
     public static int jnativehookToJNA(int jnativehookKeyCode) {
-        return jnativehookToJNA.getOrDefault(jnativehookKeyCode, -1); // returns -1 if not found
+        if (jnativehookKeyCode < 0 || jnativehookKeyCode > 0xFFFF)
+            return -1;
+        return jnativehookToJNA[tableIndex(jnativehookKeyCode)]; // returns -1 if not found
+    }
+
+    /**
+     * Convert JNA key codes back to JNativeHook, used for displaying saved shortcuts
+     */
+    public static int jnaToJnativehook(int jnaKeyCode) {
+        if (jnaKeyCode < 0 || jnaKeyCode >= JNA_TABLE_SIZE)
+            return -1;
+        return jnaToJnativehook[jnaKeyCode]; // returns -1 if not found
+    }
+
+    /**
+     * Returns a human readable name of the JNA key code, for displaying shortcuts
+     */
+    public static String getKeyText(int jnaKeyCode) {
+        int jnativehookKeyCode = jnaToJnativehook(jnaKeyCode);
+        return jnativehookKeyCode == -1 ? "Key " + jnaKeyCode : NativeKeyEvent.getKeyText(jnativehookKeyCode);
+    }
+
+    /**
+     * Returns true for Shift, Control, Alt and Windows, the keys which are held down while the rest of a chord is pressed
+     */
+    public static boolean isModifier(int jnaKeyCode) {
+        return jnaKeyCode == JNA_SHIFT || jnaKeyCode == JNA_CONTROL || jnaKeyCode == JNA_ALT || jnaKeyCode == JNA_WINDOWS;
+    }
+
+    /**
+     * Convert AWT key codes, which are captured by the shortcut configurator, to JNA.
+     * Most keys share the same code in both sets, only the ones that differ are translated.
+     */
+    public static int awtToJNA(int awtKeyCode) {
+
+        switch (awtKeyCode) {
+            case KeyEvent.VK_ENTER: return JNA_ENTER;
+            case KeyEvent.VK_INSERT: return JNA_INSERT;
+            case KeyEvent.VK_DELETE: return JNA_DELETE;
+            case KeyEvent.VK_PRINTSCREEN: return JNA_PRINTSCREEN;
+            case KeyEvent.VK_WINDOWS: return JNA_WINDOWS;
+            case KeyEvent.VK_CONTEXT_MENU: return JNA_CONTEXT_MENU;
+            case KeyEvent.VK_SEMICOLON: return JNA_SEMICOLON;
+            case KeyEvent.VK_EQUALS: return JNA_EQUALS;
+            case KeyEvent.VK_COMMA: return JNA_COMMA;
+            case KeyEvent.VK_MINUS: return JNA_MINUS;
+            case KeyEvent.VK_PERIOD: return JNA_PERIOD;
+            case KeyEvent.VK_SLASH: return JNA_SLASH;
+            case KeyEvent.VK_OPEN_BRACKET: return JNA_OPEN_BRACKET;
+            case KeyEvent.VK_BACK_SLASH: return JNA_BACK_SLASH;
+            case KeyEvent.VK_CLOSE_BRACKET: return JNA_CLOSE_BRACKET;
+            case KeyEvent.VK_LESS: return JNA_LESSER_GREATER;
+            case KeyEvent.VK_KP_UP: return JNA_UP;
+            case KeyEvent.VK_KP_DOWN: return JNA_DOWN;
+            case KeyEvent.VK_KP_LEFT: return JNA_LEFT;
+            case KeyEvent.VK_KP_RIGHT: return JNA_RIGHT;
+        }
+
+        if (awtKeyCode >= KeyEvent.VK_F13 && awtKeyCode <= KeyEvent.VK_F24)
+            return JNA_F13 + (awtKeyCode - KeyEvent.VK_F13);
+
+        return awtKeyCode >= 0 && awtKeyCode < JNA_TABLE_SIZE ? awtKeyCode : -1;
     }
 
 }
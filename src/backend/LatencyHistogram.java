@@ -0,0 +1,100 @@
+package backend;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of latencies in nanoseconds with log-linear buckets, in the style of HdrHistogram.
+ * Every power of two range is split into 32 equal buckets, so any recorded value is reported within about 3%,
+ * from a nanosecond up to the largest long. Recording is a few bit operations and atomic increments, and never allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // summary slots, kept in the same array as the buckets
+    private static final int COUNT = BUCKETS;
+    private static final int TOTAL = BUCKETS + 1;
+    private static final int MAX = BUCKETS + 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 3);
+
+    public void record(long nanos) {
+
+        if (nanos < 0)
+            nanos = 0;
+
+        counts.incrementAndGet(bucketIndex(nanos));
+        counts.incrementAndGet(COUNT);
+        counts.addAndGet(TOTAL, nanos);
+
+        long max;
+        while (nanos > (max = counts.get(MAX)) && !counts.compareAndSet(MAX, max, nanos)) {
+            // another thread raised the maximum meanwhile, compare again
+        }
+    }
+
+    public long getCount() {
+        return counts.get(COUNT);
+    }
+
+    public long getMax() {
+        return counts.get(MAX);
+    }
+
+    public long getMean() {
+        long count = counts.get(COUNT);
+        return count == 0 ? 0 : counts.get(TOTAL) / count;
+    }
+
+    /**
+     * Returns the highest value of the bucket which holds the given percentile (0 - 100) of the recorded values,
+     * or 0 if nothing was recorded. Values recorded while reading may or may not be included.
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        long count = counts.get(COUNT);
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highestValue(i), getMax());
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+    }
+
+    /**
+     * Values below 32 get a bucket each, larger values share 32 buckets per power of two
+     */
+    private static int bucketIndex(long value) {
+
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value); // at least SUB_BUCKET_BITS
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValue(int index) {
+
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+}
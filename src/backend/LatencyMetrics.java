@@ -0,0 +1,197 @@
+package backend;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of every stage between a key press and the window being moved, and of the whole way per position,
+ * each recorded in its own lock free histogram so that recording never blocks or allocates on the key hook thread.
+ * Counters of events which never reach a later stage are kept next to them.
+ */
+public class LatencyMetrics implements LatencyMetricsMXBean {
+
+    /**
+     * Stages of a shortcut, in the order in which they happen, the frames of animated moves and the mouse events of a drag
+     */
+    public enum Stage {
+        MATCH, // converting the key code and advancing through the shortcuts, on the key hook thread
+        FOREGROUND, // looking up the focused window and queueing the action, on the key hook thread
+        QUEUE, // waiting in the queue of the action executor
+        MONITOR, // finding the monitor of the window and its layout table
+        PLACE, // computing the target and the native positioning call
+        TOTAL, // from the key press until the window was moved
+        FRAME, // computing and committing one frame of every window which is animating, on the animation thread
+        SNAP // finding the zone under the cursor while a window is dragged, on the mouse hook thread
+    }
+
+    /**
+     * Events which are counted rather than timed
+     */
+    public enum Counter {
+        KEY_REPEATS, // key presses of a key which was already held, delivered by the keyboard auto-repeat
+        REPEATS_FIRED, // auto-repeats which fired the held shortcut again, only with a repeat interval configured
+        MOVES, // native positioning calls, a batch counts once
+        MOVES_SKIPPED, // moves left out because the window was already at the target
+        FRAMES, // animation frames committed
+        FRAMES_DROPPED, // frame deadlines which passed while the previous frame was still being committed
+        RETARGETS, // animations which were given a new target before they finished
+        ZONE_CHANGES, // mouse events of a drag which moved the cursor into another zone, the only ones which update the overlay
+        SNAPS // dragged windows which were dropped into a zone
+    }
+
+    private static final String OBJECT_NAME = "windowsmanager:type=LatencyMetrics";
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final Map<String, LatencyHistogram> positions = new ConcurrentHashMap<>();
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+
+    public LatencyMetrics() {
+        for (int i = 0; i < stages.length; i++)
+            stages[i] = new LatencyHistogram();
+        for (int i = 0; i < counters.length; i++)
+            counters[i] = new LongAdder();
+    }
+
+    public void increment(Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    public void add(Counter counter, long amount) {
+        counters[counter.ordinal()].add(amount);
+    }
+
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records the time from the key press until the window was moved, both for the position and as the total stage
+     */
+    public void recordPosition(String position, long nanos) {
+        stages[Stage.TOTAL.ordinal()].record(nanos);
+        positions.computeIfAbsent(position, name -> new LatencyHistogram()).record(nanos); // allocates only for a new position
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Returns the histogram of the stage or position with the given name, or null if there is none
+     */
+    public LatencyHistogram getHistogram(String name) {
+        for (Stage stage : Stage.values())
+            if (stage.name().equals(name))
+                return stages[stage.ordinal()];
+        return positions.get(name);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException err) {
+            Log.error("Latency metrics could not be registered", err);
+        }
+    }
+
+    /**
+     * Writes the report to the file when the application exits
+     */
+    public void dumpOnExit(Path file) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.writeString(file, getReport());
+            } catch (IOException err) {
+                Log.error("Latency report could not be written", err);
+            }
+        }, "latency-dump"));
+    }
+
+    @Override
+    public String[] getHistogramNames() {
+        List<String> names = new ArrayList<>();
+        for (Stage stage : Stage.values())
+            names.add(stage.name());
+        names.addAll(positions.keySet());
+        return names.toArray(new String[0]);
+    }
+
+    @Override
+    public long getCount(String name) {
+        LatencyHistogram histogram = getHistogram(name);
+        return histogram == null ? 0 : histogram.getCount();
+    }
+
+    @Override
+    public double getPercentileMicros(String name, double percentile) {
+        LatencyHistogram histogram = getHistogram(name);
+        return histogram == null ? 0 : histogram.getValueAtPercentile(percentile) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros(String name) {
+        LatencyHistogram histogram = getHistogram(name);
+        return histogram == null ? 0 : histogram.getMax() / 1e3;
+    }
+
+    @Override
+    public long getCounter(String name) {
+        for (Counter counter : Counter.values())
+            if (counter.name().equals(name))
+                return getCount(counter);
+        return 0;
+    }
+
+    @Override
+    public String getReport() {
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-16s %10s %12s %12s %12s %12s%n", "stage/position", "count", "p50 us", "p99 us", "p99.9 us", "max us"));
+
+        for (Stage stage : Stage.values())
+            appendRow(report, stage.name(), stages[stage.ordinal()]);
+
+        report.append(System.lineSeparator());
+        positions.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> appendRow(report, entry.getKey(), entry.getValue()));
+
+        report.append(System.lineSeparator());
+        for (Counter counter : Counter.values())
+            report.append(String.format("%-16s %10d%n", counter.name(), getCount(counter)));
+
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : stages)
+            histogram.reset();
+        positions.values().forEach(LatencyHistogram::reset);
+        for (LongAdder counter : counters)
+            counter.reset();
+    }
+
+    private static void appendRow(StringBuilder report, String name, LatencyHistogram histogram) {
+        report.append(String.format("%-16s %10d %12.1f %12.1f %12.1f %12.1f%n", name, histogram.getCount(),
+                histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+                histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMax() / 1e3));
+    }
+
+}
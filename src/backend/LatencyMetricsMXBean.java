@@ -0,0 +1,32 @@
+package backend;
+
+/**
+ * Management interface of the latency metrics, registered with the platform MBean server
+ * as windowsmanager:type=LatencyMetrics so that it can be watched with JConsole or any other JMX client
+ */
+public interface LatencyMetricsMXBean {
+
+    /**
+     * Names of all stages and positions which have a histogram
+     */
+    String[] getHistogramNames();
+
+    long getCount(String name);
+
+    double getPercentileMicros(String name, double percentile);
+
+    double getMaxMicros(String name);
+
+    /**
+     * Value of the event counter with the given name, like KEY_REPEATS or MOVES_SKIPPED
+     */
+    long getCounter(String name);
+
+    /**
+     * Count and p50 / p99 / p99.9 / max of every stage and position as a table, followed by the event counters
+     */
+    String getReport();
+
+    void reset();
+
+}
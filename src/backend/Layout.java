@@ -0,0 +1,76 @@
+package backend;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The set of named window positions, made of the built in positions and the cells defined in the shortcuts file.
+ * Each position gets a fixed index, which is used to look up its precomputed rectangle in a LayoutTable.
+ */
+public final class Layout {
+
+    public static final String DEFINITION_PREFIX = "layout."; // shortcuts file keys which define a cell instead of a shortcut
+
+    // the built in positions, halves on horizontal monitors and thirds on vertical ones
+    private static final Map<String, String> DEFAULT_DEFINITIONS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_DEFINITIONS.put("top_left", "2x2@0,0");
+        DEFAULT_DEFINITIONS.put("top_right", "2x2@1,0");
+        DEFAULT_DEFINITIONS.put("bottom_left", "2x2@0,1");
+        DEFAULT_DEFINITIONS.put("bottom_right", "2x2@1,1");
+        DEFAULT_DEFINITIONS.put("top", "1x3@0,0");
+        DEFAULT_DEFINITIONS.put("middle", "1x3@0,1");
+        DEFAULT_DEFINITIONS.put("bottom", "1x3@0,2");
+    }
+
+    private final LayoutCell[] cells;
+    private final Map<String, Integer> indexes;
+
+    private Layout(LayoutCell[] cells) {
+        this.cells = cells;
+        this.indexes = new HashMap<>();
+        for (int i = 0; i < cells.length; i++)
+            indexes.put(cells[i].getName(), i);
+    }
+
+    /**
+     * Compiles the built in positions and the given definitions (position name to cell definition) into a layout.
+     * A definition can redefine a built in position, invalid definitions are reported and skipped.
+     */
+    public static Layout compile(Map<String, String> definitions) {
+
+        Map<String, LayoutCell> cells = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> entry : DEFAULT_DEFINITIONS.entrySet())
+            cells.put(entry.getKey(), LayoutCell.parse(entry.getKey(), entry.getValue()));
+
+        for (Map.Entry<String, String> entry : definitions.entrySet()) {
+            try {
+                cells.put(entry.getKey(), LayoutCell.parse(entry.getKey(), entry.getValue()));
+            } catch (IllegalArgumentException err) {
+                Log.warn(err.getMessage());
+            }
+        }
+
+        return new Layout(cells.values().toArray(new LayoutCell[0]));
+    }
+
+    /**
+     * Returns the index of the position, or -1 if there is no such position
+     */
+    public int indexOf(String position) {
+        Integer index = indexes.get(position);
+        return index == null ? -1 : index;
+    }
+
+    public int size() {
+        return cells.length;
+    }
+
+    public LayoutCell getCell(int index) {
+        return cells[index];
+    }
+
+}
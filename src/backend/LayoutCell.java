@@ -0,0 +1,127 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A named window position defined as a cell of a grid laid over the work area of a monitor.
+ * Columns and rows are either split evenly or by ratio weights, and a cell can span several columns and rows.
+ *
+ * Definitions look like {@code 2x2@1,0} (top right quarter), {@code 1:2:1x1@1,0} (middle half of three ratio split columns)
+ * or {@code 5x1@1,0+3x1} (three middle columns of a five column ultrawide grid).
+ */
+public final class LayoutCell {
+
+    // <columns>x<rows>@<column>,<row>[+<column span>x<row span>], where columns and rows are a count or ratio weights
+    private static final Pattern DEFINITION = Pattern.compile("(\\d+(?::\\d+)*)x(\\d+(?::\\d+)*)@(\\d+),(\\d+)(?:\\+(\\d+)x(\\d+))?");
+
+    private final String name;
+    private final int[] columnWeights;
+    private final int[] rowWeights;
+    private final int column;
+    private final int row;
+    private final int columnSpan;
+    private final int rowSpan;
+
+    public LayoutCell(String name, int[] columnWeights, int[] rowWeights, int column, int row, int columnSpan, int rowSpan) {
+
+        if (column < 0 || row < 0 || columnSpan < 1 || rowSpan < 1
+                || column + columnSpan > columnWeights.length || row + rowSpan > rowWeights.length)
+            throw new IllegalArgumentException("Cell " + name + " does not fit into its grid");
+
+        if (Arrays.stream(columnWeights).anyMatch(weight -> weight < 1) || Arrays.stream(rowWeights).anyMatch(weight -> weight < 1))
+            throw new IllegalArgumentException("Cell " + name + " has a grid weight below 1");
+
+        this.name = name;
+        this.columnWeights = columnWeights.clone();
+        this.rowWeights = rowWeights.clone();
+        this.column = column;
+        this.row = row;
+        this.columnSpan = columnSpan;
+        this.rowSpan = rowSpan;
+    }
+
+    /**
+     * Parses a cell definition from the shortcuts file
+     */
+    public static LayoutCell parse(String name, String definition) {
+
+        Matcher matcher = DEFINITION.matcher(definition.trim());
+        if (!matcher.matches())
+            throw new IllegalArgumentException("Invalid layout definition for " + name + ": " + definition);
+
+        return new LayoutCell(
+                name,
+                parseWeights(matcher.group(1)),
+                parseWeights(matcher.group(2)),
+                Integer.parseInt(matcher.group(3)),
+                Integer.parseInt(matcher.group(4)),
+                matcher.group(5) == null ? 1 : Integer.parseInt(matcher.group(5)),
+                matcher.group(6) == null ? 1 : Integer.parseInt(matcher.group(6)));
+    }
+
+    /**
+     * A single number is a count of even parts, several colon separated numbers are the ratio weights of the parts
+     */
+    private static int[] parseWeights(String weights) {
+
+        if (weights.indexOf(':') == -1) {
+            int[] even = new int[Integer.parseInt(weights)];
+            Arrays.fill(even, 1);
+            return even;
+        }
+        return Arrays.stream(weights.split(":")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Calculates the bounds of the cell within the area
+     */
+    public Rect resolve(Rect area) {
+        return new Rect(
+                edge(area.left, area.width(), columnWeights, column),
+                edge(area.top, area.height(), rowWeights, row),
+                edge(area.left, area.width(), columnWeights, column + columnSpan),
+                edge(area.top, area.height(), rowWeights, row + rowSpan));
+    }
+
+    /**
+     * Position of the edge in front of the part with the given index, edges of neighbouring cells always meet exactly
+     */
+    private static int edge(int start, int length, int[] weights, int index) {
+
+        long total = 0;
+        long before = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            if (i < index)
+                before += weights[i];
+        }
+        return start + (int) (length * before / total);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Definition in the same format which is accepted by parse
+     */
+    @Override
+    public String toString() {
+        String definition = weightsToString(columnWeights) + "x" + weightsToString(rowWeights) + "@" + column + "," + row;
+        return columnSpan == 1 && rowSpan == 1 ? definition : definition + "+" + columnSpan + "x" + rowSpan;
+    }
+
+    private static String weightsToString(int[] weights) {
+
+        if (Arrays.stream(weights).allMatch(weight -> weight == 1))
+            return String.valueOf(weights.length);
+
+        StringBuilder builder = new StringBuilder();
+        for (int weight : weights)
+            builder.append(builder.length() == 0 ? "" : ":").append(weight);
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,48 @@
+package backend;
+
+/**
+ * Rectangles of every layout position on every monitor, computed once from the monitor work areas
+ * and stored in a flat table, so that resolving the target of an action is a single array lookup.
+ * A new table is compiled whenever the monitor topology or the layout changes.
+ */
+public final class LayoutTable {
+
+    private final Layout layout;
+    private final MonitorTopology topology;
+    private final Rect[] rects; // indexed by monitor index * layout size + position index
+
+    private LayoutTable(Layout layout, MonitorTopology topology, Rect[] rects) {
+        this.layout = layout;
+        this.topology = topology;
+        this.rects = rects;
+    }
+
+    public static LayoutTable compile(Layout layout, MonitorTopology topology) {
+
+        Rect[] rects = new Rect[topology.size() * layout.size()];
+
+        for (int monitor = 0; monitor < topology.size(); monitor++) {
+            Rect workArea = topology.getMonitor(monitor).getWorkArea();
+            for (int position = 0; position < layout.size(); position++)
+                rects[monitor * layout.size() + position] = layout.getCell(position).resolve(workArea);
+        }
+
+        return new LayoutTable(layout, topology, rects);
+    }
+
+    /**
+     * Returns the rectangle of the position on the monitor, both given by their index
+     */
+    public Rect get(int monitorIndex, int positionIndex) {
+        return rects[monitorIndex * layout.size() + positionIndex];
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public MonitorTopology getTopology() {
+        return topology;
+    }
+
+}
@@ -0,0 +1,354 @@
+package backend;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log of the backend which never blocks the thread that logs. A log call claims a preallocated slot of a ring buffer
+ * and copies the level, the time, a constant message and up to two key value fields into it, keeping strings
+ * as references and numbers as longs, so nothing is formatted or allocated by the caller. A background thread formats
+ * the records and writes them, debug and info to standard output, warnings and errors to standard error. It sleeps
+ * while the buffer is empty, and the first record logged wakes it. When the buffer is full the record is dropped and counted rather than waited for.
+ *
+ * Every record is written as one line of the time in UTC, the level, the message and the fields,
+ * like {@code 2026-10-18T15:14:45.123Z INFO Executing action position=left_half window=1311810}.
+ * The lowest level written is set with -Dwindowsmanager.log=debug|info|warn|error, info by default.
+ */
+public final class Log {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    private static final int CAPACITY = 1024; // records waiting to be written, a power of two
+    private static volatile Level threshold = parseLevel(System.getProperty("windowsmanager.log", "info"));
+
+    private static final Slot[] slots = new Slot[CAPACITY];
+    private static final AtomicLong claimed = new AtomicLong(); // sequence of the next record to be logged
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final Thread writer;
+    private static volatile boolean idle; // the writer found the buffer empty and parks until a record is published
+    private static volatile boolean closing;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++)
+            slots[i] = new Slot(i);
+
+        writer = new Thread(new Writer(), "log-writer");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+
+        // records logged right before the exit are still written
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closing = true;
+            LockSupport.unpark(writer);
+            try {
+                writer.join(1_000);
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+            }
+        }, "log-flush"));
+    }
+
+    private Log() {
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    /**
+     * Changes the lowest level which is written, for drivers which measure the window manager and keep its log quiet
+     */
+    public static void setThreshold(Level level) {
+        threshold = level;
+    }
+
+    public static void debug(String message, String key, String value) {
+        append(Level.DEBUG, message, key, value, 0, null, null, 0, null);
+    }
+
+    public static void info(String message) {
+        append(Level.INFO, message, null, null, 0, null, null, 0, null);
+    }
+
+    public static void info(String message, String key1, String value1, String key2, long value2) {
+        append(Level.INFO, message, key1, value1, 0, key2, null, value2, null);
+    }
+
+    public static void info(String message, String key1, long value1, String key2, long value2) {
+        append(Level.INFO, message, key1, null, value1, key2, null, value2, null);
+    }
+
+    public static void warn(String message) {
+        append(Level.WARN, message, null, null, 0, null, null, 0, null);
+    }
+
+    public static void warn(String message, String key, String value) {
+        append(Level.WARN, message, key, value, 0, null, null, 0, null);
+    }
+
+    public static void warn(String message, String key1, String value1, String key2, String value2) {
+        append(Level.WARN, message, key1, value1, 0, key2, value2, 0, null);
+    }
+
+    public static void error(String message, Throwable err) {
+        append(Level.ERROR, message, null, null, 0, null, null, 0, err);
+    }
+
+    /**
+     * Number of records which were dropped because the writer could not keep up
+     */
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Claims the next slot and fills it, a field without a text is written as its number
+     */
+    private static void append(Level level, String message, String key1, String text1, long number1,
+                               String key2, String text2, long number2, Throwable thrown) {
+
+        if (!isEnabled(level))
+            return;
+
+        long sequence;
+        Slot slot;
+        while (true) {
+            sequence = claimed.get();
+            slot = slots[(int) sequence & (CAPACITY - 1)];
+            long available = slot.sequence;
+            if (available < sequence) {
+                // the writer has not written the record from the previous round yet
+                dropped.incrementAndGet();
+                return;
+            }
+            if (available == sequence && claimed.compareAndSet(sequence, sequence + 1))
+                break;
+            // another thread claimed the slot meanwhile, try the next one
+        }
+
+        slot.level = level;
+        slot.millis = System.currentTimeMillis();
+        slot.message = message;
+        slot.key1 = key1;
+        slot.text1 = text1;
+        slot.number1 = number1;
+        slot.key2 = key2;
+        slot.text2 = text2;
+        slot.number2 = number2;
+        slot.thrown = thrown;
+        slot.sequence = sequence + 1; // publishes the record to the writer
+        if (idle)
+            LockSupport.unpark(writer);
+    }
+
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException err) {
+            return Level.INFO;
+        }
+    }
+
+    /**
+     * Record of the ring buffer. The sequence tells whose turn it is: the sequence of the record which may be written
+     * into it, that plus one once the record can be read, and the sequence of the next round once it was read.
+     */
+    private static final class Slot {
+
+        private volatile long sequence;
+        private Level level;
+        private long millis;
+        private String message;
+        private String key1;
+        private String text1;
+        private long number1;
+        private String key2;
+        private String text2;
+        private long number2;
+        private Throwable thrown;
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Formats the records in order into a reused line and encodes it into a reused buffer, the only thread reading slots
+     */
+    private static final class Writer implements Runnable {
+
+        private final StringBuilder line = new StringBuilder(256);
+        private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private char[] chars = new char[256];
+        private CharBuffer input = CharBuffer.wrap(chars);
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+        private long next; // sequence of the next record to write
+        private long reportedDrops;
+
+        @Override
+        public void run() {
+
+            while (true) {
+                boolean wrote = false;
+                Slot slot;
+                while ((slot = slots[(int) next & (CAPACITY - 1)]).sequence == next + 1) {
+                    write(slot);
+                    slot.message = slot.text1 = slot.text2 = null; // nothing logged is kept alive by the buffer
+                    slot.thrown = null;
+                    slot.sequence = next + CAPACITY;
+                    next++;
+                    wrote = true;
+                }
+
+                if (wrote) {
+                    long drops = dropped.get();
+                    if (drops != reportedDrops) {
+                        line.setLength(0);
+                        appendTimestamp(System.currentTimeMillis());
+                        line.append(" WARN Log records dropped count=").append(drops - reportedDrops);
+                        print(System.err);
+                        reportedDrops = drops;
+                    }
+                    System.out.flush();
+                    System.err.flush();
+                } else if (closing) {
+                    return;
+                } else {
+                    // the buffer is checked again after idle is set, so a record published meanwhile either is seen
+                    // here or its logger sees idle and unparks
+                    idle = true;
+                    if (slots[(int) next & (CAPACITY - 1)].sequence != next + 1 && !closing)
+                        LockSupport.park();
+                    idle = false;
+                }
+            }
+        }
+
+        private void write(Slot slot) {
+
+            line.setLength(0);
+            appendTimestamp(slot.millis);
+            line.append(' ').append(slot.level.name()).append(' ').append(slot.message);
+            appendField(slot.key1, slot.text1, slot.number1);
+            appendField(slot.key2, slot.text2, slot.number2);
+
+            if (slot.thrown != null) {
+                // errors are rare, so their stack trace is the one place where formatting allocates
+                StringWriter trace = new StringWriter();
+                slot.thrown.printStackTrace(new PrintWriter(trace));
+                line.append(System.lineSeparator()).append(trace.getBuffer(), 0, trace.getBuffer().length() - System.lineSeparator().length());
+            }
+
+            print(slot.level.compareTo(Level.WARN) >= 0 ? System.err : System.out);
+        }
+
+        private void appendField(String key, String text, long number) {
+
+            if (key == null)
+                return;
+
+            line.append(' ').append(key).append('=');
+            if (text == null) {
+                line.append(number);
+                return;
+            }
+
+            boolean quoted = text.isEmpty();
+            for (int i = 0; i < text.length() && !quoted; i++)
+                quoted = text.charAt(i) <= ' ' || text.charAt(i) == '"' || text.charAt(i) == '=';
+            if (!quoted) {
+                line.append(text);
+                return;
+            }
+
+            line.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\')
+                    line.append('\\');
+                line.append(c);
+            }
+            line.append('"');
+        }
+
+        /**
+         * Appends the time as yyyy-MM-ddTHH:mm:ss.SSSZ in UTC, with the civil date computed from the day number
+         * so that no date object is created for every record
+         */
+        private void appendTimestamp(long millis) {
+
+            long days = Math.floorDiv(millis, 86_400_000L);
+            int millisOfDay = (int) Math.floorMod(millis, 86_400_000L);
+
+            // days since 1970-01-01 to year, month and day of the proleptic Gregorian calendar
+            long shifted = days + 719_468;
+            long era = Math.floorDiv(shifted, 146_097);
+            long dayOfEra = shifted - era * 146_097;
+            long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+            long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            long monthIndex = (5 * dayOfYear + 2) / 153;
+            int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+            int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+            long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+            line.append(year).append('-');
+            appendDigits(month, 2);
+            line.append('-');
+            appendDigits(day, 2);
+            line.append('T');
+            appendDigits(millisOfDay / 3_600_000, 2);
+            line.append(':');
+            appendDigits(millisOfDay / 60_000 % 60, 2);
+            line.append(':');
+            appendDigits(millisOfDay / 1_000 % 60, 2);
+            line.append('.');
+            appendDigits(millisOfDay % 1_000, 3);
+            line.append('Z');
+        }
+
+        private void appendDigits(int value, int digits) {
+            for (int divisor = digits == 3 ? 100 : 10; divisor > 0; divisor /= 10)
+                line.append((char) ('0' + value / divisor % 10));
+        }
+
+        /**
+         * Encodes the line and a line separator into the byte buffer and writes it to the stream
+         */
+        private void print(PrintStream stream) {
+
+            line.append(System.lineSeparator());
+            if (chars.length < line.length()) {
+                chars = new char[Integer.highestOneBit(line.length()) << 1];
+                input = CharBuffer.wrap(chars);
+            }
+            line.getChars(0, line.length(), chars, 0);
+            input.clear().limit(line.length());
+
+            encoder.reset();
+            while (encoder.encode(input, bytes, true).isOverflow())
+                drain(stream);
+            while (encoder.flush(bytes).isOverflow())
+                drain(stream);
+            drain(stream);
+        }
+
+        private void drain(PrintStream stream) {
+            stream.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+
+}
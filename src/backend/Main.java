@@ -2,28 +2,101 @@ package backend;
 
 import com.github.kwhat.jnativehook.GlobalScreen;
 import com.github.kwhat.jnativehook.NativeHookException;
-import frontend.ShortcutFrame;
+import frontend.TrayMenu;
+import frontend.ZoneOverlay;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 
-//todo add more jna and jnh keycodes in keycode converter class
 //todo setting a shortcut that already exists should remove the shortcut from its previous location and update it in the new location
 //fixme when manipulating maximized window there is a white line above the window --- microsoft windows bug
-//fixme shortcuts are saved before submit button is pressed --- 134th line in shortcutframe
-//fixme subtract the taskbar size from the screen dimensions to improve window arrangement accuracy
 
 public class Main {
 
+    /**
+     * Usage: windowsmanager.jar [--control-socket <path>] [--headless] [--cds-training]
+     *
+     * With --control-socket, window placement commands are also accepted on a local socket, see ControlServer.
+     * With --headless, no tray icon is created and no AWT or Swing class is loaded, the shortcuts then only change
+     * through the shortcuts file. With --cds-training, the application starts up, loads the classes of the configurator
+     * and exits, which is used by the build to record a class data sharing archive.
+     *
+     * The shortcuts are made active first and everything else is started after, the time until then is logged.
+     */
     public static void main(String[] args) {
 
+        long startNanos = System.nanoTime();
+
+        Path controlSocket = null;
+        boolean headless = false;
+        boolean cdsTraining = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--control-socket") && i + 1 < args.length) {
+                controlSocket = Path.of(args[++i]);
+            } else if (args[i].equals("--headless")) {
+                headless = true;
+            } else if (args[i].equals("--cds-training")) {
+                cdsTraining = true;
+            } else {
+                Log.warn("Unknown option", "option", args[i]);
+            }
+        }
+
         try {
             GlobalScreen.registerNativeHook();
         } catch (NativeHookException err) {
-            err.printStackTrace();
+            Log.error("Global key hook could not be registered", err);
             System.exit(1);
         }
 
         // registers WindowManager class to listen for global key events, regardless of which application is currently in focus
-        GlobalScreen.addNativeKeyListener(new WindowManager());
+        WindowManager windowManager = new WindowManager();
+        GlobalScreen.addNativeKeyListener(windowManager);
+        // and the mouse, which only does work while a window is dragged with drag-to-snap switched on
+        GlobalScreen.addNativeMouseMotionListener(windowManager.getSnapEngine());
+
+        Log.info("Shortcuts active", "startMs", (System.nanoTime() - startNanos) / 1_000_000,
+                "uptimeMs", ManagementFactory.getRuntimeMXBean().getUptime());
+
+        if (controlSocket != null) {
+            try {
+                new ControlServer(controlSocket, windowManager).start();
+            } catch (IOException err) {
+                Log.error("Control socket could not be opened", err);
+            }
+        }
+
+        // latency of every stage is visible over JMX while running and written to a file on exit
+        WindowManager.getLatencyMetrics().registerMBean();
+        WindowManager.getLatencyMetrics().dumpOnExit(Path.of("latency.txt"));
 
-        new ShortcutFrame();
+        // gives unused heap back to the system while the application is idle
+        MemoryGovernor.start(WindowManager.getLatencyMetrics());
+
+        if (cdsTraining) {
+            train();
+        } else if (!headless) {
+            TrayMenu.install(); // the configurator window is built when it is first shown
+            windowManager.getSnapEngine().setOverlay(new ZoneOverlay()); // its window is built when zones are first shown
+        }
+    }
+
+    /**
+     * Loads the classes which a usual session needs, so that they are recorded in the class data sharing archive,
+     * then exits. Nothing is shown and no window is moved.
+     */
+    private static void train() {
+
+        String[] classes = {"frontend.TrayMenu", "frontend.ShortcutFrame", "frontend.AboutFrame", "frontend.ZoneOverlay",
+                "javax.swing.JTextArea", "javax.swing.JOptionPane", "javax.swing.JWindow", "java.awt.TrayIcon", "java.awt.PopupMenu",
+                "java.awt.CheckboxMenuItem"};
+        for (String name : classes) {
+            try {
+                Class.forName(name, false, Main.class.getClassLoader());
+            } catch (ClassNotFoundException err) {
+                Log.error("Class could not be loaded for the archive", err);
+            }
+        }
+        System.exit(0);
     }
 }
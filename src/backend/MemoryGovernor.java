@@ -0,0 +1,145 @@
+package backend;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.Kernel32;
+import com.sun.jna.platform.win32.WinNT;
+import com.sun.jna.win32.StdCallLibrary;
+import com.sun.jna.win32.W32APIOptions;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the footprint of the always running process small. While no window was moved since the last check and no window
+ * of the application is open, garbage which piled up is collected, so that the JVM can give the unused heap back
+ * to the operating system. How much is given back depends on the collector and -XX:MaxHeapFreeRatio, see the start scripts.
+ */
+public class MemoryGovernor {
+
+    private static final long CHECK_INTERVAL_SECONDS = 60;
+    private static final long MIN_GROWTH_BYTES = 4L * 1024 * 1024; // heap growth since the last trim which is worth a collection
+    private static final long MB = 1024 * 1024;
+
+    private static LatencyMetrics latencyMetrics;
+    private static volatile boolean windowOpen;
+
+    private static long lastActions = -1; // only touched by the governor thread
+    private static volatile long usedAfterTrim;
+    private static volatile long trims;
+    private static volatile long lastFreedBytes;
+
+    /**
+     * Starts checking for idle periods on a background thread, which is idle itself between the checks
+     */
+    public static void start(LatencyMetrics metrics) {
+
+        latencyMetrics = metrics;
+        usedAfterTrim = usedHeap();
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "memory-governor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(MemoryGovernor::check, CHECK_INTERVAL_SECONDS, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Called by the user interface, no trimming happens while a window is open
+     */
+    public static void setWindowOpen(boolean open) {
+        windowOpen = open;
+    }
+
+    private static void check() {
+
+        // every executed action, from shortcuts and the control socket alike, is counted in the total stage
+        long actions = latencyMetrics.getHistogram(LatencyMetrics.Stage.TOTAL).getCount();
+        boolean idle = actions == lastActions && !windowOpen;
+        lastActions = actions;
+
+        if (idle && usedHeap() - usedAfterTrim >= MIN_GROWTH_BYTES)
+            trim();
+    }
+
+    /**
+     * Collects the whole heap, after which the JVM uncommits the part of the heap it does not need
+     */
+    public static void trim() {
+
+        long before = usedHeap();
+        System.gc();
+        usedAfterTrim = usedHeap();
+        lastFreedBytes = before - usedAfterTrim;
+        trims++;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Describes the current memory use of the process, in megabytes
+     */
+    public static String getReport() {
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        long residentBytes = getResidentBytes();
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-22s %8.1f MB%n", "Heap used", (double) heap.getUsed() / MB));
+        report.append(String.format("%-22s %8.1f MB%n", "Heap committed", (double) heap.getCommitted() / MB));
+        report.append(String.format("%-22s %8.1f MB%n", "Non heap committed", (double) nonHeap.getCommitted() / MB));
+        report.append(residentBytes < 0 ? String.format("%-22s %11s%n", "Resident set", "unknown")
+                : String.format("%-22s %8.1f MB%n", "Resident set", (double) residentBytes / MB));
+        report.append(String.format("%-22s %8d%n", "Loaded classes", ManagementFactory.getClassLoadingMXBean().getLoadedClassCount()));
+        report.append(String.format("%-22s %8d%n", "Trims", trims));
+        report.append(String.format("%-22s %8.1f MB%n", "Freed by last trim", (double) lastFreedBytes / MB));
+        return report.toString();
+    }
+
+    /**
+     * Returns the working set of the process on Windows or the resident set on Linux, or -1 if it is not known
+     */
+    static long getResidentBytes() {
+
+        try {
+            // PROCESS_MEMORY_COUNTERS is two DWORDs followed by eight SIZE_Ts, the working set is the second of them
+            Memory counters = new Memory(8 + 8L * Native.SIZE_T_SIZE);
+            if (ProcessStatus.INSTANCE.GetProcessMemoryInfo(Kernel32.INSTANCE.GetCurrentProcess(), counters, (int) counters.size()))
+                return Native.SIZE_T_SIZE == 8 ? counters.getLong(16) : counters.getInt(12) & 0xFFFFFFFFL;
+        } catch (LinkageError err) {
+            // psapi is only available on Windows
+        }
+
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status")))
+                if (line.startsWith("VmRSS:"))
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+        } catch (IOException | NumberFormatException err) {
+            // no procfs either
+        }
+        return -1;
+    }
+
+    /**
+     * Process status function which is not part of the JNA platform Psapi mapping
+     */
+    private interface ProcessStatus extends StdCallLibrary {
+
+        ProcessStatus INSTANCE = Native.load("psapi", ProcessStatus.class, W32APIOptions.DEFAULT_OPTIONS);
+
+        boolean GetProcessMemoryInfo(WinNT.HANDLE process, Pointer counters, int size);
+    }
+
+}
@@ -0,0 +1,49 @@
+package backend;
+
+/**
+ * A monitor as reported by the window system, with its full bounds, the work area which excludes the taskbar
+ * and the rate at which it is refreshed
+ */
+public final class Monitor {
+
+    static final int DEFAULT_REFRESH_RATE = 60; // assumed when the window system does not tell
+
+    private final long handle;
+    private final Rect bounds;
+    private final Rect workArea;
+    private final int refreshRate;
+
+    public Monitor(long handle, Rect bounds, Rect workArea) {
+        this(handle, bounds, workArea, DEFAULT_REFRESH_RATE);
+    }
+
+    public Monitor(long handle, Rect bounds, Rect workArea, int refreshRate) {
+        this.handle = handle;
+        this.bounds = bounds;
+        this.workArea = workArea;
+        this.refreshRate = refreshRate;
+    }
+
+    /**
+     * Native HMONITOR value
+     */
+    public long getHandle() {
+        return handle;
+    }
+
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    public Rect getWorkArea() {
+        return workArea;
+    }
+
+    /**
+     * Vertical refresh rate in Hz
+     */
+    public int getRefreshRate() {
+        return refreshRate;
+    }
+
+}
@@ -0,0 +1,54 @@
+package backend;
+
+/**
+ * Immutable snapshot of all monitors, keyed by their HMONITOR handle.
+ * A snapshot is captured once and replaced only when the window system reports a display or work area change,
+ * so resolving the geometry for an action does not have to query every monitor again.
+ */
+public final class MonitorTopology {
+
+    private final long[] handles;
+    private final Monitor[] monitors;
+
+    private MonitorTopology(Monitor[] monitors) {
+        this.monitors = monitors;
+        this.handles = new long[monitors.length];
+        for (int i = 0; i < monitors.length; i++)
+            handles[i] = monitors[i].getHandle();
+    }
+
+    /**
+     * Queries all monitors from the window system and returns them as a new snapshot
+     */
+    public static MonitorTopology capture(WindowSystem windowSystem) {
+        return new MonitorTopology(windowSystem.getMonitors());
+    }
+
+    /**
+     * Returns the monitor with the given handle, or null if it is not part of this snapshot
+     */
+    public Monitor get(long handle) {
+        int index = indexOf(handle);
+        return index == -1 ? null : monitors[index];
+    }
+
+    /**
+     * Returns the index of the monitor with the given handle, or -1 if it is not part of this snapshot.
+     * There are only a handful of monitors, so a scan over the primitive handles beats hashing boxed keys.
+     */
+    public int indexOf(long handle) {
+        for (int i = 0; i < handles.length; i++)
+            if (handles[i] == handle)
+                return i;
+        return -1;
+    }
+
+    public int size() {
+        return monitors.length;
+    }
+
+    public Monitor getMonitor(int index) {
+        return monitors[index];
+    }
+
+}
@@ -0,0 +1,70 @@
+package backend;
+
+import java.util.Locale;
+
+/**
+ * Selects the shortcuts of the application in the foreground. The process of the foreground window is looked up
+ * when the focus changes, on the thread which delivers window events, and published together with the bindings
+ * and the trie it selects as one record, so a key press finds its trie with a single volatile read and never
+ * waits for the window system.
+ */
+public class ProfileSelector implements WindowSystem.WindowEventListener {
+
+    private final WindowSystem windowSystem;
+    private volatile Selection selection = new Selection(Bindings.EMPTY, null, Bindings.EMPTY.getTrie());
+
+    public ProfileSelector(WindowSystem windowSystem) {
+        this.windowSystem = windowSystem;
+    }
+
+    /**
+     * Subscribes to the window events and selects the profile of the window which has the focus right now
+     */
+    void start() {
+        windowSystem.addWindowEventListener(this);
+        foregroundChanged(windowSystem.getForegroundWindow());
+    }
+
+    /**
+     * Returns the trie to match key presses with. After the bindings were replaced, the trie of the same process
+     * is looked up in the new ones until the focus changes, the selection is only written by the event thread.
+     */
+    SequenceTrie getTrie(Bindings bindings) {
+        Selection current = selection;
+        return current.bindings == bindings ? current.trie : bindings.getTrie(current.processName);
+    }
+
+    /**
+     * Returns the process of the foreground window, null if no window has the focus
+     */
+    String getProcessName() {
+        return selection.processName;
+    }
+
+    @Override
+    public void foregroundChanged(long window) {
+
+        // the process is looked up even while there are no profiles, since bindings loaded later may add some
+        // and they are only applied to the process known from the last focus change
+        Bindings bindings = ShortcutManager.getBindings();
+        String processName = window == 0 ? null : windowSystem.getProcessName(window).toLowerCase(Locale.ROOT);
+        selection = new Selection(bindings, processName, bindings.getTrie(processName));
+    }
+
+    /**
+     * Process of the foreground window and the trie its profile selects from the bindings
+     */
+    private static final class Selection {
+
+        private final Bindings bindings;
+        private final String processName;
+        private final SequenceTrie trie;
+
+        private Selection(Bindings bindings, String processName, SequenceTrie trie) {
+            this.bindings = bindings;
+            this.processName = processName;
+            this.trie = trie;
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package backend;
+
+/**
+ * Immutable screen rectangle in virtual screen coordinates, right and bottom edges are exclusive like in Win32 RECT
+ */
+public final class Rect {
+
+    public final int left;
+    public final int top;
+    public final int right;
+    public final int bottom;
+
+    public Rect(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Rect))
+            return false;
+        Rect rect = (Rect) other;
+        return left == rect.left && top == rect.top && right == rect.right && bottom == rect.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((left * 31 + top) * 31 + right) * 31 + bottom;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + left + "," + top + " " + width() + "x" + height() + "]";
+    }
+
+}
@@ -0,0 +1,160 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precompiled state machine which matches shortcuts made of one or more chords pressed one after another,
+ * like Alt + W, then 1, then 3. The shortcuts form a trie whose nodes are states, and every transition
+ * (state, chord) is kept in a single open addressing hash table, so advancing on a key event costs one hash
+ * and a few array reads no matter how many shortcuts are saved, and it never allocates.
+ * A state reached by the last chord of a shortcut is a leaf which carries the bound position.
+ */
+final class SequenceTrie {
+
+    static final int ROOT = 0;
+    static final int NO_STATE = -1;
+
+    private final int[] fromStates; // state of the transition in the same slot, NO_STATE marks an empty slot
+    private final long[] chords; // ChordIndex.WORDS longs per slot
+    private final int[] toStates;
+    private final String[] positions; // position bound to each state, null for the root and inner states
+    private final int mask;
+
+    private SequenceTrie(int[] fromStates, long[] chords, int[] toStates, String[] positions) {
+        this.fromStates = fromStates;
+        this.chords = chords;
+        this.toStates = toStates;
+        this.positions = positions;
+        this.mask = fromStates.length - 1;
+    }
+
+    /**
+     * Compiles single chord shortcuts and chord sequences into a new trie, single chords first.
+     * Chords without any usable key code are skipped. A shortcut which ends on a state used by an earlier shortcut,
+     * or which passes through the leaf of an earlier one, could never be told apart from it and is skipped.
+     */
+    static SequenceTrie compile(Map<String, List<Integer>> shortcuts, Map<String, List<List<Integer>>> sequences) {
+
+        List<String> names = new ArrayList<>();
+        List<List<List<Integer>>> strokes = new ArrayList<>();
+        int transitions = 0;
+
+        for (Map.Entry<String, List<Integer>> entry : shortcuts.entrySet()) {
+            names.add(entry.getKey());
+            strokes.add(List.of(entry.getValue()));
+            transitions++;
+        }
+        for (Map.Entry<String, List<List<Integer>>> entry : sequences.entrySet()) {
+            names.add(entry.getKey());
+            strokes.add(entry.getValue());
+            transitions += entry.getValue().size();
+        }
+
+        // keep the load factor at or below 0.5 so that probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(transitions, 1) * 2 - 1) << 1;
+        int[] fromStates = new int[capacity];
+        long[] chords = new long[capacity * ChordIndex.WORDS];
+        int[] toStates = new int[capacity];
+        Arrays.fill(fromStates, NO_STATE);
+
+        SequenceTrie trie = new SequenceTrie(fromStates, chords, toStates, new String[transitions + 1]);
+        int stateCount = 1;
+
+        long[] chord = new long[ChordIndex.WORDS];
+        for (int i = 0; i < names.size(); i++) {
+
+            String name = names.get(i);
+            List<List<Integer>> sequence = strokes.get(i);
+            int state = ROOT;
+            boolean created = false;
+            boolean empty = false;
+
+            for (int stroke = 0; stroke < sequence.size() && state != NO_STATE; stroke++) {
+
+                Arrays.fill(chord, 0L);
+                for (int keyCode : sequence.get(stroke))
+                    ChordIndex.set(chord, keyCode);
+
+                empty = ChordIndex.isEmpty(chord);
+                if (empty || trie.positions[state] != null) {
+                    state = NO_STATE;
+                    break;
+                }
+
+                int next = trie.next(state, chord);
+                if (next == NO_STATE) {
+                    next = stateCount++;
+                    trie.add(state, chord, next);
+                    created = true;
+                }
+                state = next;
+            }
+
+            if (empty)
+                continue;
+            if (state == NO_STATE || !created) {
+                Log.warn("Shortcut conflicts with another shortcut and is ignored", "position", name);
+                continue;
+            }
+            trie.positions[state] = name;
+        }
+
+        return trie;
+    }
+
+    /**
+     * Returns the state reached from the given state when exactly the given chord is held, or NO_STATE if there is none
+     */
+    int next(int state, long[] chord) {
+
+        int slot = hash(state, chord) & mask;
+        while (fromStates[slot] != NO_STATE) {
+            if (fromStates[slot] == state && matches(slot, chord))
+                return toStates[slot];
+            slot = (slot + 1) & mask;
+        }
+        return NO_STATE;
+    }
+
+    /**
+     * Returns the position bound to the state, or null if more chords are needed to complete a shortcut
+     */
+    String getPosition(int state) {
+        return positions[state];
+    }
+
+    private void add(int state, long[] chord, int next) {
+
+        int slot = hash(state, chord) & mask;
+        while (fromStates[slot] != NO_STATE)
+            slot = (slot + 1) & mask;
+
+        fromStates[slot] = state;
+        System.arraycopy(chord, 0, chords, slot * ChordIndex.WORDS, ChordIndex.WORDS);
+        toStates[slot] = next;
+    }
+
+    private boolean matches(int slot, long[] chord) {
+        int offset = slot * ChordIndex.WORDS;
+        for (int i = 0; i < ChordIndex.WORDS; i++)
+            if (chords[offset + i] != chord[i])
+                return false;
+        return true;
+    }
+
+    private static int hash(int state, long[] chord) {
+        long h = state * 0xC2B2AE3D27D4EB4FL;
+        for (long word : chord)
+            h = (h ^ word) * 0x9E3779B97F4A7C15L;
+
+        // final avalanche so that chords differing in a single key land far apart
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+}
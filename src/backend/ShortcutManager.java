@@ -1,95 +1,238 @@
 package backend;
 
-import java.io.*;
-import java.util.Arrays;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
-import static frontend.ShortcutFrame.selectedShortcutPosition;
+import java.util.concurrent.atomic.AtomicReference;
 
-//todo merge loadShortcuts and loadShortcutsFromFile methods
 public class ShortcutManager {
 
-    public static Map<String, List<Integer>> savedShortcuts;
+    static final String SEQUENCE_TIMEOUT_KEY = "sequence_timeout_ms"; // how long to wait for the next chord of a sequence
+    static final String REPEAT_INTERVAL_KEY = "repeat_interval_ms"; // how often a held shortcut fires again, 0 to fire once
+    static final String ANIMATION_KEY = "animation_ms"; // how long a window slides to its target, 0 to move it at once
+    static final String DRAG_SNAP_KEY = "drag_snap"; // true to put a dragged window into the layout cell it is dropped on
+    static final String PROFILE_PREFIX = "profile."; // profile.<process>/<position> binds a shortcut for one application only
+    private static final ShortcutStore store = new ShortcutStore(Path.of(System.getProperty("windowsmanager.shortcuts", "shortcuts.txt")));
+    // the active bindings, replaced as a whole and never modified, so readers always see a complete snapshot
+    private static final AtomicReference<Bindings> bindings = new AtomicReference<>(Bindings.EMPTY);
 
     /**
-     * Loads shortcuts from the file and stores them in the global savedShortcuts map
+     * Returns the active bindings, a single volatile read which never blocks
+     */
+    public static Bindings getBindings() {
+        return bindings.get();
+    }
+
+    /**
+     * Returns the path of the shortcuts file, other files of the application are kept next to it
+     */
+    static Path getShortcutsFile() {
+        return store.getFile();
+    }
+
+    /**
+     * Loads shortcuts, chord sequences, application profiles, layout cell definitions and window rules from the file, compiles them
+     * and publishes them as the active bindings used for matching key presses
      */
     public static void loadShortcuts() {
-        savedShortcuts = loadShortcutsFromFile();
+
+        Map<String, String> entries = store.load();
+        Map<String, List<Integer>> shortcuts = new HashMap<>();
+        Map<String, List<List<Integer>>> sequences = new LinkedHashMap<>();
+        parseShortcuts(entries, shortcuts, sequences);
+
+        for (String conflict : new BindingAnalyzer(shortcuts, sequences).findConflicts())
+            Log.warn("Shortcut conflict", "conflict", conflict);
+
+        bindings.set(new Bindings(shortcuts, sequences,
+                parseMillis(entries, SEQUENCE_TIMEOUT_KEY, Bindings.DEFAULT_SEQUENCE_TIMEOUT_NANOS),
+                parseMillis(entries, REPEAT_INTERVAL_KEY, Bindings.NO_REPEAT),
+                parseMillis(entries, ANIMATION_KEY, Bindings.NO_ANIMATION),
+                Boolean.parseBoolean(entries.get(DRAG_SNAP_KEY)),
+                Layout.compile(parseDefinitions(entries, Layout.DEFINITION_PREFIX)),
+                WindowRules.compile(parseDefinitions(entries, WindowRule.DEFINITION_PREFIX)),
+                parseProfiles(entries)));
     }
 
     /**
-     * First reads the existing shortcuts from the file, updates them with the new shortcuts made during application runtime
-     * which are stored in savedShortcuts map, and then writes the combined set of shortcuts back to the file.
-     * If a shortcut already exists, it will be updated with the new value.
+     * Publishes the shortcuts as the active bindings, keeping the current layout,
+     * used directly when shortcuts do not come from the file
      */
-    public static void saveShortcuts() {
+    static void setShortcuts(Map<String, List<Integer>> shortcuts) {
+        bindings.updateAndGet(current -> current.withShortcuts(shortcuts));
+    }
 
-        Map<String, List<Integer>> shortcuts = loadShortcutsFromFile();
+    /**
+     * Saves the shortcuts of the submitted draft which differ from the active ones and publishes the draft as the active bindings.
+     * Only the changed and removed shortcuts are handed to the store, which appends them to the journal of the shortcuts file,
+     * so a save costs the same however many entries the file has. Layout definitions, rules and settings are kept as they are.
+     */
+    public static void saveShortcuts(Map<String, List<Integer>> draft) {
+
+        Map<String, List<Integer>> active = getBindings().getShortcuts();
+        Map<String, String> changed = new LinkedHashMap<>();
+        List<String> removed = new ArrayList<>();
+
+        for (Map.Entry<String, List<Integer>> entry : draft.entrySet()) {
+            if (!entry.getValue().equals(active.get(entry.getKey()))) {
+                StringBuilder keyCodes = new StringBuilder();
+                for (int keyCode : entry.getValue())
+                    keyCodes.append(keyCodes.length() == 0 ? "" : ",").append(keyCode);
+                changed.put(entry.getKey(), keyCodes.toString());
+            }
+        }
+        for (String position : active.keySet())
+            if (!draft.containsKey(position))
+                removed.add(position);
 
-        // update existing shortcuts with new values made during applications runtime
-        shortcuts.putAll(savedShortcuts);
+        store.save(changed, removed);
+        setShortcuts(draft);
+    }
 
-        // write all shortcuts to the file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("shortcuts.txt"))) {
-            for (Map.Entry<String, List<Integer>> entry : shortcuts.entrySet()) {
+    /**
+     * Sorts the keyboard shortcuts of the file entries into single chords and sequences of chords,
+     * skipping layout definitions, rules, profiles and settings. Chords of a sequence are separated by ';', like 18,87;49;51 for Alt + W, 1, 3.
+     */
+    static void parseShortcuts(Map<String, String> entries, Map<String, List<Integer>> shortcuts,
+                                       Map<String, List<List<Integer>>> sequences) {
 
-                String windowPosition = entry.getKey();
-                String keyCodes = entry.getValue().stream()
-                        .map(String::valueOf)
-                        .collect(Collectors.joining(","));
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
 
-                writer.write(windowPosition + "=" + keyCodes);
-                writer.newLine();
+            if (entry.getKey().startsWith(Layout.DEFINITION_PREFIX) || entry.getKey().startsWith(WindowRule.DEFINITION_PREFIX)
+                    || entry.getKey().startsWith(PROFILE_PREFIX) || entry.getKey().equals(SEQUENCE_TIMEOUT_KEY)
+                    || entry.getKey().equals(REPEAT_INTERVAL_KEY) || entry.getKey().equals(ANIMATION_KEY)
+                    || entry.getKey().equals(DRAG_SNAP_KEY)) {
+                continue;
+            }
+
+            List<List<Integer>> sequence = parseSequence(entry.getValue());
+            if (sequence == null) {
+                Log.warn("Invalid shortcut", "position", entry.getKey(), "value", entry.getValue());
+            } else if (sequence.size() == 1) {
+                shortcuts.put(entry.getKey(), sequence.get(0));
+            } else {
+                sequences.put(entry.getKey(), sequence);
             }
-        } catch (IOException err) {
-            err.printStackTrace();
         }
     }
 
     /**
-     * Reads keyboard shortcuts from the file and returns them as a map.
+     * Returns the shortcuts of the application profiles, keyed by the lower case process name and then by position.
+     * A shortcut of a profile is kept as a sequence, with a single chord being a sequence of one.
      */
-    private static Map<String, List<Integer>> loadShortcutsFromFile() {
+    private static Map<String, Map<String, List<List<Integer>>>> parseProfiles(Map<String, String> entries) {
 
-        Map<String, List<Integer>> fileShortcuts = new HashMap<>();
+        Map<String, Map<String, List<List<Integer>>>> profiles = new HashMap<>();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader("shortcuts.txt"))) {
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (!entry.getKey().startsWith(PROFILE_PREFIX))
+                continue;
 
-            String line;
-            while ((line = reader.readLine()) != null) {
+            int separator = entry.getKey().indexOf('/', PROFILE_PREFIX.length());
+            List<List<Integer>> sequence = parseSequence(entry.getValue());
+            if (separator == -1 || separator == entry.getKey().length() - 1 || sequence == null) {
+                Log.warn("Invalid profile shortcut", "key", entry.getKey(), "value", entry.getValue());
+                continue;
+            }
 
-                String[] parts = line.split("=");
-                if (parts.length == 2) {
+            String processName = entry.getKey().substring(PROFILE_PREFIX.length(), separator).toLowerCase(Locale.ROOT);
+            profiles.computeIfAbsent(processName, key -> new LinkedHashMap<>()).put(entry.getKey().substring(separator + 1), sequence);
+        }
+        return profiles;
+    }
 
-                    String windowPosition = parts[0].trim();
-                    List<Integer> keyCodes = Arrays.stream(parts[1].trim().split(","))
-                            .map(String::trim)
-                            .map(Integer::parseInt)
-                            .collect(Collectors.toList());
-                    fileShortcuts.put(windowPosition, keyCodes);
-                }
+    /**
+     * Parses chords separated by ';', returns null if any of them is not a list of key codes
+     */
+    private static List<List<Integer>> parseSequence(String value) {
+
+        String[] chords = value.split(";");
+        List<List<Integer>> sequence = new ArrayList<>(chords.length);
+        for (String chord : chords) {
+            List<Integer> keyCodes = parseKeyCodes(chord);
+            if (keyCodes == null)
+                return null;
+            sequence.add(keyCodes);
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns the setting given in milliseconds as nanoseconds, or the default if it is missing or invalid
+     */
+    private static long parseMillis(Map<String, String> entries, String key, long defaultNanos) {
+
+        String value = entries.get(key);
+        if (value != null) {
+            try {
+                return Math.max(0, Long.parseLong(value)) * 1_000_000L;
+            } catch (NumberFormatException err) {
+                Log.warn("Invalid setting", key, value);
+            }
+        }
+        return defaultNanos;
+    }
+
+    /**
+     * Parses comma separated key codes in a single pass, returns null if the value is not a list of numbers
+     */
+    private static List<Integer> parseKeyCodes(String value) {
+
+        List<Integer> keyCodes = new ArrayList<>(4);
+        int keyCode = -1;
+
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i == value.length() ? ',' : value.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                keyCode = (keyCode == -1 ? 0 : keyCode * 10) + (c - '0');
+                if (keyCode >= ChordIndex.KEY_CODE_LIMIT)
+                    return null;
+            } else if (c == ',' && keyCode != -1) {
+                keyCodes.add(keyCode);
+                keyCode = -1;
+            } else if (c != ' ') {
+                return null;
             }
-        } catch (IOException err) {
-            err.printStackTrace();
         }
 
-        return fileShortcuts;
+        return keyCodes.isEmpty() ? null : keyCodes;
     }
 
     /**
-     * Checks if the newly set shortcut is already used for a different position
-     * by comparing it with existing shortcuts stored in savedShortcuts HashMap.
+     * Returns the layout cell or rule definitions from the file entries, keyed by name without the prefix
      */
-    public static boolean isShortcutAlreadyUsed(List<Integer> newlySetShortcut) {
+    private static Map<String, String> parseDefinitions(Map<String, String> entries, String prefix) {
+
+        Map<String, String> definitions = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> entry : entries.entrySet())
+            if (entry.getKey().startsWith(prefix))
+                definitions.put(entry.getKey().substring(prefix.length()), entry.getValue());
 
-        for (Map.Entry<String, List<Integer>> entry : savedShortcuts.entrySet())
-            if (!entry.getKey().equals(selectedShortcutPosition) && entry.getValue().equals(newlySetShortcut))
-                return true;
+        return definitions;
+    }
+
+    /**
+     * Checks if the newly set shortcut is already used for a different position, with its keys in any order,
+     * or starts a chord sequence, by looking it up in the index of the draft which is being edited
+     */
+    public static boolean isShortcutAlreadyUsed(BindingAnalyzer draftIndex, String position, List<Integer> newlySetShortcut) {
+        return draftIndex.findOwner(position, newlySetShortcut) != null;
+    }
+
+    /**
+     * Lists the conflicts between the active shortcuts and chord sequences, one per line
+     */
+    public static String getConflictReport() {
 
-        return false;
+        Bindings current = bindings.get();
+        List<String> conflicts = new BindingAnalyzer(current.getShortcuts(), current.getSequences()).findConflicts();
+        return conflicts.isEmpty() ? "No conflicts between the shortcuts." : String.join(System.lineSeparator(), conflicts);
     }
 
 }
@@ -0,0 +1,445 @@
+package backend;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Crash safe storage of the shortcuts file entries (shortcuts and layout definitions, as key=value strings).
+ *
+ * The entries live in a base file, either the human readable text form or a compact binary form when the file name
+ * ends with .bin. Saving only appends the changed entries to a journal next to the base file, so the cost of a save
+ * depends on the number of changes rather than on the size of the configuration. Once the journal grows large it is
+ * compacted: the full set of entries is written to a temporary file which then atomically replaces the base file.
+ * A crash can therefore lose at most the journal record being written, never the existing shortcuts.
+ *
+ * The journal header holds the modification time and size of the base file it belongs to. A base file edited by hand
+ * no longer matches, and its journal is set aside instead of being replayed over the edit.
+ *
+ * Both files are read with a single read into one buffer and parsed by a streaming parser, without splitting lines
+ * or boxing values. They are deliberately not memory mapped, because Windows refuses to replace or delete a file
+ * while a mapping of it is alive, and a mapping is only released once the garbage collector gets to it.
+ */
+public class ShortcutStore {
+
+    private static final String TEXT_HEADER = "#windows-manager shortcuts v2"; // a line without '=' is ignored by older versions
+    private static final int BINARY_MAGIC = 0x574D5343; // "WMSC"
+    private static final int JOURNAL_MAGIC = 0x574D534A; // "WMSJ"
+    private static final byte VERSION = 2;
+    private static final byte JOURNAL_VERSION = 3;
+    private static final int JOURNAL_HEADER_SIZE = 21; // magic, version, modification time and size of the base file
+
+    // record types of the binary form and of the journal
+    private static final byte RECORD_KEY_CODES = 0; // comma separated key codes below 256, stored as one byte each
+    private static final byte RECORD_TEXT = 1; // any other value, stored as UTF-8
+    private static final byte RECORD_REMOVED = 2; // the entry was removed, only used in the journal
+
+    private static final int COMPACTION_THRESHOLD = 256; // journal records after which the journal is folded into the base file
+
+    private final Path file;
+    private final Path journal;
+    private final boolean binary;
+
+    private final Map<String, String> persistedEntries = new LinkedHashMap<>(); // entries as they are on disk
+    private int journalRecords;
+    private boolean loaded;
+    private long fileModified = -1; // modification time and size of the base file when it was read or written, -1 if missing
+    private long fileSize = -1;
+
+    public ShortcutStore(Path file) {
+        this.file = file;
+        this.journal = file.resolveSibling(file.getFileName() + ".journal");
+        this.binary = file.getFileName().toString().endsWith(".bin");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the base file and replays the journal on top of it, returning all entries in file order
+     */
+    public synchronized Map<String, String> load() {
+
+        persistedEntries.clear();
+        journalRecords = 0;
+        loaded = true;
+
+        try {
+            fileModified = lastModified(file);
+            fileSize = size(file);
+            ByteBuffer base = read(file);
+            if (base != null) {
+                if (binary)
+                    readBinary(base, persistedEntries);
+                else
+                    readText(base, persistedEntries);
+            }
+
+            ByteBuffer journalBuffer = read(journal);
+            if (journalBuffer != null && journalBuffer.hasRemaining())
+                replayJournal(journalBuffer);
+        } catch (IOException err) {
+            Log.error("Shortcuts could not be read", err);
+        }
+
+        return new LinkedHashMap<>(persistedEntries);
+    }
+
+    /**
+     * Persists the changed entries and the removed keys by appending them to the journal, leaving out the ones which
+     * are on disk like that already, so the cost depends on the number of changes and not on the number of entries.
+     * If the base file was edited by hand since it was read, it is read again first, so that the edit is kept.
+     */
+    public synchronized void save(Map<String, String> changed, Collection<String> removed) {
+
+        try {
+            if (!loaded || lastModified(file) != fileModified || size(file) != fileSize)
+                load();
+
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            int changes = 0;
+
+            for (Map.Entry<String, String> entry : changed.entrySet()) {
+                if (!Objects.equals(persistedEntries.get(entry.getKey()), entry.getValue())) {
+                    writeJournalRecord(records, entry.getKey(), entry.getValue());
+                    changes++;
+                }
+            }
+            for (String key : removed) {
+                if (persistedEntries.containsKey(key) && !changed.containsKey(key)) {
+                    writeJournalRecord(records, key, null);
+                    changes++;
+                }
+            }
+
+            if (changes == 0)
+                return;
+
+            appendToJournal(records.toByteArray());
+            journalRecords += changes;
+
+            persistedEntries.putAll(changed);
+            for (String key : removed)
+                if (!changed.containsKey(key))
+                    persistedEntries.remove(key);
+
+            if (journalRecords >= COMPACTION_THRESHOLD)
+                compact();
+        } catch (IOException err) {
+            Log.error("Shortcuts could not be saved", err);
+        }
+    }
+
+    /**
+     * Replays the journal over the entries of the base file. Every later save is appended to the journal, so a journal
+     * which cannot be replayed to its end would hide them: a torn record at its end is cut off, and a journal with
+     * an unreadable header or another format version, or one written for another state of the base file, is set aside
+     * next to it.
+     */
+    private void replayJournal(ByteBuffer buffer) throws IOException {
+
+        if (buffer.remaining() < JOURNAL_HEADER_SIZE || buffer.getInt() != JOURNAL_MAGIC || buffer.get() != JOURNAL_VERSION) {
+            setJournalAside("Shortcuts journal is not readable");
+            return;
+        }
+        if (buffer.getLong() != fileModified || buffer.getLong() != fileSize) {
+            setJournalAside("Shortcuts file was changed since its journal was written");
+            return;
+        }
+
+        journalRecords = readJournal(buffer, persistedEntries);
+
+        if (buffer.hasRemaining()) {
+            Log.warn("Shortcuts journal ends with a torn record", "journal", journal.toString());
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.truncate(buffer.position());
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Moves the journal out of the way, keeping it for recovery by hand
+     */
+    private void setJournalAside(String reason) throws IOException {
+
+        Path discarded = journal.resolveSibling(journal.getFileName() + ".discarded");
+        Log.warn(reason, "journal", discarded.toString());
+        Files.move(journal, discarded, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes all entries to a temporary file, atomically replaces the base file with it and empties the journal
+     */
+    public synchronized void compact() throws IOException {
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        if (binary) {
+            Files.write(temporary, toBinary(persistedEntries));
+        } else {
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writer.write(TEXT_HEADER);
+                writer.newLine();
+                for (Map.Entry<String, String> entry : persistedEntries.entrySet()) {
+                    writer.write(entry.getKey() + "=" + entry.getValue());
+                    writer.newLine();
+                }
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true); // the content must be on disk before the rename makes it visible
+        }
+
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        fileModified = lastModified(file);
+        fileSize = size(file);
+
+        // the journal does not match the new base file, so a crash before this point sets it aside, losing nothing
+        Files.deleteIfExists(journal);
+        journalRecords = 0;
+    }
+
+    /**
+     * Parses lines of key=value pairs, skipping comments, blank lines and lines without a value
+     */
+    static void readText(ByteBuffer buffer, Map<String, String> entries) {
+
+        byte[] line = new byte[256];
+
+        while (buffer.hasRemaining()) {
+
+            int length = 0;
+            int separator = -1;
+
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n')
+                    break;
+                if (b == '=' && separator == -1)
+                    separator = length;
+                if (length == line.length)
+                    line = Arrays.copyOf(line, length * 2);
+                line[length++] = b;
+            }
+
+            if (separator <= 0 || line[0] == '#')
+                continue;
+
+            String key = new String(line, 0, separator, StandardCharsets.UTF_8).trim();
+            String value = new String(line, separator + 1, length - separator - 1, StandardCharsets.UTF_8).trim();
+            if (!key.isEmpty() && !value.isEmpty())
+                entries.put(key, value);
+        }
+    }
+
+    static void readBinary(ByteBuffer buffer, Map<String, String> entries) throws IOException {
+
+        if (buffer.getInt() != BINARY_MAGIC || buffer.get() != VERSION)
+            throw new IOException("Not a version " + VERSION + " binary shortcuts file");
+
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++)
+            readRecord(buffer, entries);
+    }
+
+    /**
+     * Replays the journal records following the header and returns their number. A torn or corrupt record ends the replay,
+     * the buffer is then left at the end of the last valid record.
+     */
+    static int readJournal(ByteBuffer buffer, Map<String, String> entries) {
+
+        int records = 0;
+        int end = buffer.position();
+        CRC32 crc = new CRC32();
+
+        try {
+            while (buffer.hasRemaining()) {
+
+                int length = Short.toUnsignedInt(buffer.getShort());
+                ByteBuffer record = buffer.slice();
+                record.limit(length);
+                buffer.position(buffer.position() + length);
+
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != buffer.getInt())
+                    break;
+
+                readRecord(record, entries);
+                records++;
+                end = buffer.position();
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException err) {
+            // the last record was only partially written before a crash
+        }
+
+        buffer.position(end);
+        return records;
+    }
+
+    private static void readRecord(ByteBuffer buffer, Map<String, String> entries) {
+
+        byte type = buffer.get();
+        String key = readString(buffer, Short.toUnsignedInt(buffer.getShort()));
+
+        switch (type) {
+            case RECORD_KEY_CODES -> {
+                int count = Byte.toUnsignedInt(buffer.get());
+                StringBuilder keyCodes = new StringBuilder(count * 4);
+                for (int i = 0; i < count; i++)
+                    keyCodes.append(i == 0 ? "" : ",").append(Byte.toUnsignedInt(buffer.get()));
+                entries.put(key, keyCodes.toString());
+            }
+            case RECORD_TEXT -> entries.put(key, readString(buffer, Short.toUnsignedInt(buffer.getShort())));
+            case RECORD_REMOVED -> entries.remove(key);
+            default -> throw new IllegalArgumentException("Unknown record type " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static byte[] toBinary(Map<String, String> entries) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(BINARY_MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(entries.size());
+
+        for (Map.Entry<String, String> entry : entries.entrySet())
+            writeRecord(out, entry.getKey(), entry.getValue());
+
+        return bytes.toByteArray();
+    }
+
+    private static void writeJournalRecord(ByteArrayOutputStream records, String key, String value) throws IOException {
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        writeRecord(new DataOutputStream(recordBytes), key, value);
+        byte[] record = recordBytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(record);
+
+        DataOutputStream out = new DataOutputStream(records);
+        out.writeShort(record.length);
+        out.write(record);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes one entry, values which are a plain list of key codes take one byte per key, null marks a removed entry
+     */
+    private static void writeRecord(DataOutputStream out, String key, String value) throws IOException {
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] keyCodes = value == null ? null : toKeyCodeBytes(value);
+
+        out.writeByte(value == null ? RECORD_REMOVED : keyCodes != null ? RECORD_KEY_CODES : RECORD_TEXT);
+        out.writeShort(keyBytes.length);
+        out.write(keyBytes);
+
+        if (keyCodes != null) {
+            out.writeByte(keyCodes.length);
+            out.write(keyCodes);
+        } else if (value != null) {
+            byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(valueBytes.length);
+            out.write(valueBytes);
+        }
+    }
+
+    /**
+     * Returns the key codes of a "18,85" style value as bytes, or null if the value is anything else
+     */
+    private static byte[] toKeyCodeBytes(String value) {
+
+        byte[] keyCodes = new byte[value.length()];
+        int count = 0;
+        int keyCode = -1;
+
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i == value.length() ? ',' : value.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                keyCode = (keyCode == -1 ? 0 : keyCode * 10) + (c - '0');
+                if (keyCode > 0xFF)
+                    return null;
+            } else if (c == ',' && keyCode != -1) {
+                keyCodes[count++] = (byte) keyCode;
+                keyCode = -1;
+            } else {
+                return null;
+            }
+        }
+
+        return count == 0 || count > 0xFF ? null : Arrays.copyOf(keyCodes, count);
+    }
+
+    private void appendToJournal(byte[] records) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE).putInt(JOURNAL_MAGIC).put(JOURNAL_VERSION)
+                        .putLong(fileModified).putLong(fileSize);
+                header.flip();
+                channel.write(header);
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(records);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads the whole file into one buffer, returns null if the file does not exist
+     */
+    private static ByteBuffer read(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading until the buffer is full
+            }
+            return buffer.flip();
+        } catch (NoSuchFileException err) {
+            return null;
+        }
+    }
+
+    private static long lastModified(Path path) throws IOException {
+        return Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() : -1;
+    }
+
+    private static long size(Path path) throws IOException {
+        return Files.exists(path) ? Files.size(path) : -1;
+    }
+
+}
@@ -0,0 +1,422 @@
+package backend;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * In-memory desktop which stands in for the native window system, so that the window manager logic can be driven
+ * and measured without Windows. Monitors and windows are configurable, every call is counted,
+ * and a fixed latency can be injected into every call to model a slow native API.
+ * Window events are delivered synchronously, on the thread which caused them. Calls made while handling an event
+ * stand for work of the separate event thread of Windows, so they are counted apart and do not spend the latency.
+ */
+public class SimulatedWindowSystem implements WindowSystem {
+
+    /**
+     * Window system calls, in the same order as the call counters
+     */
+    public enum Call {
+        FOREGROUND_WINDOW,
+        WINDOW_RECT,
+        IS_RESIZABLE,
+        PROCESS_NAME,
+        CLASS_NAME,
+        TITLE,
+        SET_WINDOW_POSITION,
+        SET_WINDOW_POSITIONS,
+        SET_WINDOW_BOUNDS,
+        TOP_LEVEL_WINDOWS,
+        IS_TOP_LEVEL_WINDOW,
+        MONITORS,
+        MONITOR_FROM_WINDOW
+    }
+
+    private final AtomicLongArray callCounts = new AtomicLongArray(Call.values().length);
+    private final AtomicLong eventCallCount = new AtomicLong();
+    private final ThreadLocal<Boolean> deliveringEvent = ThreadLocal.withInitial(() -> false);
+    private final Map<Long, SimulatedWindow> windows = new ConcurrentSkipListMap<>(); // iterated in handle order, used as z-order
+    private volatile Monitor[] monitors;
+    private volatile long foregroundWindow;
+    private volatile long callLatencyNanos;
+    private volatile Runnable displayChangeListener;
+    private final List<WindowEventListener> windowEventListeners = new CopyOnWriteArrayList<>();
+    private long nextWindowHandle = 0x10000;
+
+    public SimulatedWindowSystem(Monitor... monitors) {
+        this.monitors = monitors.clone();
+    }
+
+    /**
+     * Creates monitors of the same size placed side by side, each with a taskbar of the given height at the bottom
+     */
+    public static Monitor[] sideBySideMonitors(int count, int width, int height, int taskbarHeight) {
+
+        Monitor[] monitors = new Monitor[count];
+        for (int i = 0; i < count; i++) {
+            Rect bounds = new Rect(i * width, 0, (i + 1) * width, height);
+            monitors[i] = new Monitor(i + 1, bounds, new Rect(bounds.left, bounds.top, bounds.right, bounds.bottom - taskbarHeight));
+        }
+        return monitors;
+    }
+
+    /**
+     * Adds a window to the desktop and returns its handle, the first window added becomes the foreground window
+     */
+    public long addWindow(Rect rect, boolean resizable) {
+        return addWindow(rect, resizable, "simulated.exe", "SimulatedWindow", "");
+    }
+
+    /**
+     * Adds a window of the given process and window class, with the given title
+     */
+    public synchronized long addWindow(Rect rect, boolean resizable, String processName, String className, String title) {
+
+        long handle = nextWindowHandle++;
+        windows.put(handle, new SimulatedWindow(rect, resizable, processName, className, title));
+        deliver(listener -> listener.windowShown(handle));
+
+        if (foregroundWindow == 0)
+            setForegroundWindow(handle);
+
+        return handle;
+    }
+
+    public void removeWindow(long window) {
+        windows.remove(window);
+        if (foregroundWindow == window)
+            foregroundWindow = 0;
+
+        deliver(listener -> listener.windowDestroyed(window));
+    }
+
+    /**
+     * Hides or shows the window, a hidden window is not a top level window, like a minimized one
+     */
+    public void setVisible(long window, boolean visible) {
+        SimulatedWindow simulatedWindow = windows.get(window);
+        if (simulatedWindow == null || simulatedWindow.visible == visible)
+            return;
+
+        simulatedWindow.visible = visible;
+        if (visible)
+            deliver(listener -> listener.windowShown(window));
+        else
+            deliver(listener -> listener.windowHidden(window));
+    }
+
+    public void setForegroundWindow(long window) {
+        foregroundWindow = window;
+
+        deliver(listener -> listener.foregroundChanged(window));
+    }
+
+    /**
+     * Moves or resizes the window like the user dragging it, which is not counted as a call
+     */
+    public void setWindowRect(long window, Rect rect) {
+        SimulatedWindow simulatedWindow = windows.get(window);
+        if (simulatedWindow != null) {
+            simulatedWindow.rect = rect;
+            locationChanged(window);
+            deliver(listener -> listener.moveEnded(window));
+        }
+    }
+
+    /**
+     * Starts a drag of the window, like the user pressing the mouse button on its title bar
+     */
+    public void beginDrag(long window) {
+        if (windows.containsKey(window))
+            deliver(listener -> listener.moveStarted(window));
+    }
+
+    /**
+     * Moves or resizes the window during a drag, which goes on until endDrag
+     */
+    public void dragWindow(long window, Rect rect) {
+        SimulatedWindow simulatedWindow = windows.get(window);
+        if (simulatedWindow != null) {
+            simulatedWindow.rect = rect;
+            locationChanged(window);
+        }
+    }
+
+    /**
+     * Ends the drag of the window, like the user releasing the mouse button
+     */
+    public void endDrag(long window) {
+        if (windows.containsKey(window))
+            deliver(listener -> listener.moveEnded(window));
+    }
+
+    public void setTitle(long window, String title) {
+        SimulatedWindow simulatedWindow = windows.get(window);
+        if (simulatedWindow != null) {
+            simulatedWindow.title = title;
+            deliver(listener -> listener.titleChanged(window));
+        }
+    }
+
+    /**
+     * Replaces the monitors and notifies the display change listener, like a monitor being attached or detached
+     */
+    public void setMonitors(Monitor... monitors) {
+        this.monitors = monitors.clone();
+
+        Runnable listener = displayChangeListener;
+        if (listener != null)
+            listener.run();
+    }
+
+    /**
+     * Latency which is added to every call, spent busy waiting so that short latencies are accurate
+     */
+    public void setCallLatencyNanos(long callLatencyNanos) {
+        this.callLatencyNanos = callLatencyNanos;
+    }
+
+    public long getCallCount(Call call) {
+        return callCounts.get(call.ordinal());
+    }
+
+    public long getTotalCallCount() {
+        long total = 0;
+        for (int i = 0; i < callCounts.length(); i++)
+            total += callCounts.get(i);
+        return total;
+    }
+
+    /**
+     * Calls made while handling window events, which are not part of the call counts
+     */
+    public long getEventCallCount() {
+        return eventCallCount.get();
+    }
+
+    public void resetCallCounts() {
+        for (int i = 0; i < callCounts.length(); i++)
+            callCounts.set(i, 0);
+        eventCallCount.set(0);
+    }
+
+    public int getWindowCount() {
+        return windows.size();
+    }
+
+    @Override
+    public long getForegroundWindow() {
+        call(Call.FOREGROUND_WINDOW);
+        return foregroundWindow;
+    }
+
+    @Override
+    public Rect getWindowRect(long window) {
+        call(Call.WINDOW_RECT);
+        SimulatedWindow simulatedWindow = windows.get(window);
+        return simulatedWindow == null ? new Rect(0, 0, 0, 0) : simulatedWindow.rect;
+    }
+
+    @Override
+    public boolean isResizable(long window) {
+        call(Call.IS_RESIZABLE);
+        SimulatedWindow simulatedWindow = windows.get(window);
+        return simulatedWindow != null && simulatedWindow.resizable;
+    }
+
+    @Override
+    public String getProcessName(long window) {
+        call(Call.PROCESS_NAME);
+        SimulatedWindow simulatedWindow = windows.get(window);
+        return simulatedWindow == null ? "" : simulatedWindow.processName;
+    }
+
+    @Override
+    public String getClassName(long window) {
+        call(Call.CLASS_NAME);
+        SimulatedWindow simulatedWindow = windows.get(window);
+        return simulatedWindow == null ? "" : simulatedWindow.className;
+    }
+
+    @Override
+    public String getTitle(long window) {
+        call(Call.TITLE);
+        SimulatedWindow simulatedWindow = windows.get(window);
+        return simulatedWindow == null ? "" : simulatedWindow.title;
+    }
+
+    @Override
+    public boolean setWindowPosition(long window, int x, int y, int width, int height) {
+        call(Call.SET_WINDOW_POSITION);
+        SimulatedWindow simulatedWindow = windows.get(window);
+        if (simulatedWindow == null)
+            return false;
+
+        simulatedWindow.rect = new Rect(x, y, x + width, y + height);
+        locationChanged(window);
+        return true;
+    }
+
+    /**
+     * Applies all targets as a single call, like one deferred window positioning transaction
+     */
+    @Override
+    public boolean setWindowPositions(long[] windows, Rect[] targets, int count) {
+        call(Call.SET_WINDOW_POSITIONS);
+
+        boolean allMoved = true;
+        for (int i = 0; i < count; i++) {
+            SimulatedWindow simulatedWindow = this.windows.get(windows[i]);
+            if (simulatedWindow == null) {
+                allMoved = false;
+                continue;
+            }
+            simulatedWindow.rect = targets[i];
+            locationChanged(windows[i]);
+        }
+        return allMoved;
+    }
+
+    @Override
+    public boolean setWindowBounds(long[] windows, int[] bounds, int count) {
+        call(Call.SET_WINDOW_BOUNDS);
+
+        boolean allMoved = true;
+        for (int i = 0; i < count; i++) {
+            SimulatedWindow simulatedWindow = this.windows.get(windows[i]);
+            if (simulatedWindow == null) {
+                allMoved = false;
+                continue;
+            }
+            int left = bounds[i * 4];
+            int top = bounds[i * 4 + 1];
+            simulatedWindow.rect = new Rect(left, top, left + bounds[i * 4 + 2], top + bounds[i * 4 + 3]);
+            locationChanged(windows[i]);
+        }
+        return allMoved;
+    }
+
+    @Override
+    public long[] getTopLevelWindows() {
+        call(Call.TOP_LEVEL_WINDOWS);
+        return windows.entrySet().stream().filter(entry -> entry.getValue().visible).mapToLong(Map.Entry::getKey).toArray();
+    }
+
+    @Override
+    public boolean isTopLevelWindow(long window) {
+        call(Call.IS_TOP_LEVEL_WINDOW);
+        SimulatedWindow simulatedWindow = windows.get(window);
+        return simulatedWindow != null && simulatedWindow.visible;
+    }
+
+    @Override
+    public Monitor[] getMonitors() {
+        call(Call.MONITORS);
+        return monitors.clone();
+    }
+
+    @Override
+    public long getMonitorFromWindow(long window) {
+        call(Call.MONITOR_FROM_WINDOW);
+
+        SimulatedWindow simulatedWindow = windows.get(window);
+        Monitor[] current = monitors;
+        if (simulatedWindow == null || current.length == 0)
+            return 0;
+
+        // like MONITOR_DEFAULTTONEAREST, the monitor with the largest intersection, or the one nearest to the window center
+        Rect rect = simulatedWindow.rect;
+        Monitor best = current[0];
+        long bestArea = -1;
+        long bestDistance = Long.MAX_VALUE;
+
+        for (Monitor monitor : current) {
+            Rect bounds = monitor.getBounds();
+            long area = (long) Math.max(0, Math.min(rect.right, bounds.right) - Math.max(rect.left, bounds.left))
+                    * Math.max(0, Math.min(rect.bottom, bounds.bottom) - Math.max(rect.top, bounds.top));
+
+            long dx = (rect.left + rect.right) / 2 - (bounds.left + bounds.right) / 2;
+            long dy = (rect.top + rect.bottom) / 2 - (bounds.top + bounds.bottom) / 2;
+            long distance = dx * dx + dy * dy;
+
+            if (area > bestArea || (area == 0 && bestArea == 0 && distance < bestDistance)) {
+                best = monitor;
+                bestArea = area;
+                bestDistance = distance;
+            }
+        }
+        return best.getHandle();
+    }
+
+    @Override
+    public void setDisplayChangeListener(Runnable listener) {
+        displayChangeListener = listener;
+    }
+
+    @Override
+    public boolean addWindowEventListener(WindowEventListener listener) {
+        windowEventListeners.add(listener);
+        return true;
+    }
+
+    private void locationChanged(long window) {
+        deliver(listener -> listener.locationChanged(window));
+    }
+
+    private void deliver(Consumer<WindowEventListener> event) {
+
+        if (deliveringEvent.get())
+            return;
+
+        deliveringEvent.set(true);
+        try {
+            for (WindowEventListener listener : windowEventListeners)
+                event.accept(listener);
+        } finally {
+            deliveringEvent.set(false);
+        }
+    }
+
+    /**
+     * Counts the call and spends the injected latency
+     */
+    private void call(Call call) {
+
+        if (deliveringEvent.get()) {
+            eventCallCount.incrementAndGet();
+            return;
+        }
+
+        callCounts.incrementAndGet(call.ordinal());
+
+        long latency = callLatencyNanos;
+        if (latency > 0) {
+            long end = System.nanoTime() + latency;
+            while (System.nanoTime() < end)
+                Thread.onSpinWait();
+        }
+    }
+
+    private static class SimulatedWindow {
+
+        private volatile Rect rect;
+        private final boolean resizable;
+        private final String processName;
+        private final String className;
+        private volatile String title;
+        private volatile boolean visible = true;
+
+        private SimulatedWindow(Rect rect, boolean resizable, String processName, String className, String title) {
+            this.rect = rect;
+            this.resizable = resizable;
+            this.processName = processName;
+            this.className = className;
+            this.title = title;
+        }
+    }
+
+}
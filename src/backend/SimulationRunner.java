@@ -0,0 +1,237 @@
+package backend;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Drives synthetic key events through the real window manager logic on top of a simulated desktop
+ * and reports throughput, latency and window system call counts for every position.
+ *
+ * Usage: SimulationRunner [--presses N] [--windows N] [--monitors N] [--latency-us N] [--compare-batch] [--animate N]
+ *
+ * With --compare-batch it instead compares moving 2, 10 and 50 windows one by one against a single batched commit.
+ * With --animate it instead keeps N windows animating at once on a 144 Hz monitor, giving them new targets before
+ * they arrive, and reports the frame times against the frame budget.
+ */
+public class SimulationRunner {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        // actions log every move, only warnings and errors are written so that the console stays out of the measurement,
+        // unless a level is asked for with -Dwindowsmanager.log
+        if (System.getProperty("windowsmanager.log") == null)
+            Log.setThreshold(Log.Level.WARN);
+
+        int presses = 100_000;
+        int windowCount = 2_000;
+        int monitorCount = 2;
+        long latencyNanos = 0;
+        boolean compareBatch = false;
+        int animatedWindows = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--presses" -> presses = Integer.parseInt(args[++i]);
+                case "--windows" -> windowCount = Integer.parseInt(args[++i]);
+                case "--monitors" -> monitorCount = Integer.parseInt(args[++i]);
+                case "--latency-us" -> latencyNanos = Long.parseLong(args[++i]) * 1_000;
+                case "--compare-batch" -> compareBatch = true;
+                case "--animate" -> animatedWindows = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (compareBatch) {
+            compareBatchPlacement(latencyNanos);
+            return;
+        }
+        if (animatedWindows > 0) {
+            measureAnimation(animatedWindows, latencyNanos);
+            return;
+        }
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(
+                SimulatedWindowSystem.sideBySideMonitors(monitorCount, 2560, 1440, 40));
+
+        // windows scattered over all monitors, every tenth one is not resizable
+        Random random = new Random(42);
+        long[] windows = new long[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            int x = random.nextInt(2560 * monitorCount - 800);
+            int y = random.nextInt(1440 - 600);
+            windows[i] = windowSystem.addWindow(new Rect(x, y, x + 800, y + 600), i % 10 != 0);
+        }
+
+        Map<String, List<Integer>> shortcuts = defaultShortcuts();
+        ShortcutManager.setShortcuts(shortcuts);
+        WindowManager windowManager = new WindowManager(windowSystem);
+        ActionExecutor executor = windowManager.getActionExecutor();
+
+        System.out.printf("%d presses per position, %d windows, %d monitors, %d us injected per call%n%n",
+                presses, windowCount, monitorCount, latencyNanos / 1_000);
+        System.out.printf("%-13s %14s %12s %12s %12s %10s %10s %10s %10s%n",
+                "position", "key events/s", "hook ns/ev", "avg lat us", "max lat us", "executed", "dropped", "calls/move", "fg calls");
+
+        windowSystem.setCallLatencyNanos(latencyNanos);
+        long totalForegroundCalls = 0;
+
+        for (Map.Entry<String, List<Integer>> entry : shortcuts.entrySet()) {
+
+            int[] jnhKeyCodes = entry.getValue().stream().mapToInt(KeyCodeConverter::jnaToJnativehook).toArray();
+
+            windowSystem.resetCallCounts();
+            long submittedBefore = executor.getSubmittedCount();
+            long executedBefore = executor.getExecutedCount();
+            long droppedBefore = executor.getDroppedCount();
+            long coalescedBefore = executor.getCoalescedCount();
+            long latencyBefore = executor.getTotalLatencyNanos();
+
+            long hookNanos = 0;
+            for (int i = 0; i < presses; i++) {
+                // the focus change is handled by the window event listeners, it is not part of the hook time
+                windowSystem.setForegroundWindow(windows[i % windowCount]);
+
+                long start = System.nanoTime();
+                for (int keyCode : jnhKeyCodes)
+                    windowManager.keyPressed(keyCode);
+                for (int k = jnhKeyCodes.length - 1; k >= 0; k--)
+                    windowManager.keyReleased(jnhKeyCodes[k]);
+                hookNanos += System.nanoTime() - start;
+
+                // the action is done before the focus moves on, as for a person pressing shortcuts, so that it finds
+                // its window in the foreground tracker and the executor is never handed more windows than it holds
+                while (executor.getExecutedCount() - executedBefore + executor.getCoalescedCount() - coalescedBefore
+                        + executor.getDroppedCount() - droppedBefore < executor.getSubmittedCount() - submittedBefore)
+                    Thread.yield();
+            }
+
+            long keyEvents = 2L * presses * jnhKeyCodes.length;
+            long executed = executor.getExecutedCount() - executedBefore;
+            long moves = windowSystem.getCallCount(SimulatedWindowSystem.Call.SET_WINDOW_POSITION);
+            // every call of the hook and the executor counts, only calls made while window events are delivered, such as
+            // the tracker capturing the new foreground window, are counted apart by the simulated window system.
+            // The foreground window is read from the tracker, so a foreground call is a regression and is also shown on its own.
+            long foregroundCalls = windowSystem.getCallCount(SimulatedWindowSystem.Call.FOREGROUND_WINDOW);
+            totalForegroundCalls += foregroundCalls;
+
+            System.out.printf("%-13s %14.0f %12.1f %12.1f %12.1f %10d %10d %10.2f %10d%n",
+                    entry.getKey(),
+                    keyEvents * 1e9 / hookNanos,
+                    (double) hookNanos / keyEvents,
+                    executed == 0 ? 0.0 : (executor.getTotalLatencyNanos() - latencyBefore) / 1e3 / executed,
+                    executor.getMaxLatencyNanos() / 1e3,
+                    executed,
+                    executor.getDroppedCount() - droppedBefore,
+                    moves == 0 ? 0.0 : (double) windowSystem.getTotalCallCount() / moves,
+                    foregroundCalls);
+        }
+
+        if (totalForegroundCalls > 0)
+            throw new IllegalStateException("The foreground window was asked for " + totalForegroundCalls
+                    + " times instead of being read from the foreground tracker");
+    }
+
+    /**
+     * Measures the total wall time of moving N windows with one call each against a single batched commit.
+     * The injected latency stands for the cost of one positioning call including the redraw it causes.
+     */
+    private static void compareBatchPlacement(long latencyNanos) {
+
+        System.out.printf("%d us injected per call%n%n", latencyNanos / 1_000);
+        System.out.printf("%-8s %16s %16s %10s%n", "windows", "sequential us", "batched us", "speedup");
+
+        for (int count : new int[] {2, 10, 50}) {
+
+            SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(1, 2560, 1440, 40));
+            long[] windows = new long[count];
+            Rect[] targets = new Rect[count];
+            for (int i = 0; i < count; i++) {
+                windows[i] = windowSystem.addWindow(new Rect(0, 0, 800, 600), true);
+                targets[i] = new Rect(i * 10, i * 10, i * 10 + 1280, i * 10 + 700);
+            }
+            windowSystem.setCallLatencyNanos(latencyNanos);
+
+            long sequentialNanos = Long.MAX_VALUE;
+            long batchedNanos = Long.MAX_VALUE;
+
+            // best of several rounds, to leave out warm up
+            for (int round = 0; round < 20; round++) {
+
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++)
+                    windowSystem.setWindowPosition(windows[i], targets[i].left, targets[i].top, targets[i].width(), targets[i].height());
+                sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                windowSystem.setWindowPositions(windows, targets, count);
+                batchedNanos = Math.min(batchedNanos, System.nanoTime() - start);
+            }
+
+            System.out.printf("%-8d %16.1f %16.1f %9.1fx%n",
+                    count, sequentialNanos / 1e3, batchedNanos / 1e3, (double) sequentialNanos / batchedNanos);
+        }
+    }
+
+    /**
+     * Animates the windows for a few seconds, every window getting a new target every 50 ms while its 200 ms animation
+     * is still running, so that every frame commits all of them
+     */
+    private static void measureAnimation(int windowCount, long latencyNanos) throws InterruptedException {
+
+        int refreshRate = 144;
+        Rect bounds = new Rect(0, 0, 2560, 1440);
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(new Monitor(1, bounds, new Rect(0, 0, 2560, 1400), refreshRate));
+        LatencyMetrics metrics = new LatencyMetrics();
+        WindowAnimator animator = new WindowAnimator(windowSystem, MonitorTopology.capture(windowSystem), metrics);
+        animator.start();
+
+        Random random = new Random(42);
+        long[] windows = new long[windowCount];
+        for (int i = 0; i < windowCount; i++)
+            windows[i] = windowSystem.addWindow(new Rect(0, 0, 800, 600), true);
+        windowSystem.setCallLatencyNanos(latencyNanos);
+
+        System.out.printf("%d windows, %d Hz, %d us injected per call%n%n", windowCount, refreshRate, latencyNanos / 1_000);
+
+        // the first round warms up, the second is measured
+        for (int round = 0; round < 2; round++) {
+            metrics.reset();
+            long end = System.nanoTime() + 3_000_000_000L;
+            while (System.nanoTime() < end) {
+                for (long window : windows) {
+                    int x = random.nextInt(2560 - 1280);
+                    int y = random.nextInt(1400 - 700);
+                    animator.animate(window, "simulated", windowSystem.getWindowRect(window), new Rect(x, y, x + 1280, y + 700), 200_000_000L);
+                }
+                Thread.sleep(50);
+            }
+            while (animator.getActiveCount() > 0)
+                Thread.sleep(10);
+        }
+
+        LatencyHistogram frames = metrics.getHistogram(LatencyMetrics.Stage.FRAME);
+        System.out.printf("%-10s %10s %12s %12s %12s %10s %10s%n", "frames", "budget us", "p50 us", "p99 us", "max us", "dropped", "retargets");
+        System.out.printf("%-10d %10.1f %12.1f %12.1f %12.1f %10d %10d%n", frames.getCount(), 1e6 / refreshRate,
+                frames.getValueAtPercentile(50) / 1e3, frames.getValueAtPercentile(99) / 1e3, frames.getMax() / 1e3,
+                metrics.getCount(LatencyMetrics.Counter.FRAMES_DROPPED), metrics.getCount(LatencyMetrics.Counter.RETARGETS));
+    }
+
+    /**
+     * The same shortcuts as the default shortcuts file, Alt + a letter for every position
+     */
+    private static Map<String, List<Integer>> defaultShortcuts() {
+
+        Map<String, List<Integer>> shortcuts = new LinkedHashMap<>();
+        shortcuts.put("top_left", List.of(18, 85));
+        shortcuts.put("top_right", List.of(18, 73));
+        shortcuts.put("bottom_left", List.of(18, 74));
+        shortcuts.put("bottom_right", List.of(18, 75));
+        shortcuts.put("top", List.of(18, 89));
+        shortcuts.put("middle", List.of(18, 72));
+        shortcuts.put("bottom", List.of(18, 78));
+        return shortcuts;
+    }
+
+}
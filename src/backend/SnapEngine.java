@@ -0,0 +1,186 @@
+package backend;
+
+import com.github.kwhat.jnativehook.mouse.NativeMouseEvent;
+import com.github.kwhat.jnativehook.mouse.NativeMouseMotionListener;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Drag-to-snap, switched on with drag_snap=true. While the user drags a window, the cells of the layout on the monitor
+ * under the cursor are shown as zones, and a window dropped into a zone is put into that cell.
+ * The mouse reports hundreds of positions per second during a drag, so the mouse handler looks the zone up in a grid
+ * compiled when the drag starts, allocates nothing, and calls the overlay only when the cursor enters another zone.
+ */
+public class SnapEngine implements WindowSystem.WindowEventListener, NativeMouseMotionListener {
+
+    private final WindowSystem windowSystem;
+    private final TilingEngine tilingEngine;
+    private final Supplier<LayoutTable> layoutTables;
+    private final BiConsumer<Long, String> placer;
+    private final LatencyMetrics latencyMetrics;
+    private volatile SnapOverlay overlay = SnapOverlay.NONE;
+    private volatile SnapZones zones; // compiled for the layout table of the last drag, reused until the table changes
+
+    // the drag in progress, started and ended by window events, armed once the window is seen moving rather than resizing
+    private volatile long draggedWindow;
+    private volatile boolean armed;
+    private volatile int zone = SnapZones.NO_ZONE; // zone under the cursor, changed under the lock of this
+    private Rect startRect; // only touched by the thread which delivers window events
+
+    /**
+     * The placer receives a dropped window and the position it is put at, the layout tables supply the current one
+     */
+    public SnapEngine(WindowSystem windowSystem, TilingEngine tilingEngine, Supplier<LayoutTable> layoutTables,
+                      BiConsumer<Long, String> placer, LatencyMetrics latencyMetrics) {
+        this.windowSystem = windowSystem;
+        this.tilingEngine = tilingEngine;
+        this.layoutTables = layoutTables;
+        this.placer = placer;
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    void start() {
+        windowSystem.addWindowEventListener(this);
+    }
+
+    /**
+     * Sets the overlay which shows the zones, nothing is shown until one is set
+     */
+    public void setOverlay(SnapOverlay overlay) {
+        this.overlay = overlay;
+    }
+
+    /**
+     * Starts following the drag of a window which is not tiled, tiled windows are swapped by the tiling engine instead
+     */
+    @Override
+    public void moveStarted(long window) {
+
+        if (WindowManager.applicationIsPaused || !ShortcutManager.getBindings().isDragSnap() || tilingEngine.isTiledWindow(window)) {
+            return;
+        }
+
+        LayoutTable table = layoutTables.get();
+        SnapZones current = zones;
+        if (current == null || current.getTable() != table) {
+            zones = SnapZones.compile(table);
+        }
+
+        startRect = windowSystem.getWindowRect(window);
+        synchronized (this) {
+            armed = false;
+            zone = SnapZones.NO_ZONE;
+            draggedWindow = window;
+        }
+    }
+
+    /**
+     * Arms the drag when the window moved without changing its size. A window which is resized keeps the edges
+     * opposite to the one being dragged, so its drag is given up. A maximized window changes its size when it is
+     * dragged too, but then it is restored under the cursor and none of its edges stays where it was.
+     */
+    @Override
+    public void locationChanged(long window) {
+
+        if (window != draggedWindow || armed) {
+            return;
+        }
+
+        Rect rect = windowSystem.getWindowRect(window);
+        Rect start = startRect;
+        if (rect.width() == start.width() && rect.height() == start.height()) {
+            armed = rect.left != start.left || rect.top != start.top;
+        } else if ((rect.left == start.left || rect.right == start.right) && (rect.top == start.top || rect.bottom == start.bottom)) {
+            draggedWindow = 0;
+        } else {
+            armed = true;
+        }
+    }
+
+    /**
+     * Hides the zones and puts the window into the zone it was dropped into, if any
+     */
+    @Override
+    public void moveEnded(long window) {
+
+        if (window != draggedWindow) {
+            return;
+        }
+
+        int dropped = endDrag();
+        if (dropped != SnapZones.NO_ZONE) {
+            String position = zones.getTable().getLayout().getCell(SnapZones.positionOf(dropped)).getName();
+            placer.accept(window, position + "@" + (SnapZones.monitorOf(dropped) + 1));
+            latencyMetrics.increment(LatencyMetrics.Counter.SNAPS);
+        }
+    }
+
+    @Override
+    public void windowDestroyed(long window) {
+        if (window == draggedWindow) {
+            endDrag();
+        }
+    }
+
+    /**
+     * Ends the drag and hides the zones if they are shown, returns the zone under the cursor
+     */
+    private synchronized int endDrag() {
+
+        int dropped = armed ? zone : SnapZones.NO_ZONE;
+        if (zone != SnapZones.NO_ZONE) {
+            overlay.hideZones();
+        }
+        draggedWindow = 0;
+        armed = false;
+        zone = SnapZones.NO_ZONE;
+        return dropped;
+    }
+
+    @Override
+    public void nativeMouseMoved(NativeMouseEvent e) {
+        mouseMoved(e.getX(), e.getY());
+    }
+
+    @Override
+    public void nativeMouseDragged(NativeMouseEvent e) {
+        mouseMoved(e.getX(), e.getY());
+    }
+
+    /**
+     * Finds the zone under the cursor while a window is dragged, also used to drive synthetic mouse events.
+     * The overlay is only told when the zone changed, the other events end after the grid lookup.
+     */
+    void mouseMoved(int x, int y) {
+
+        if (!armed) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        SnapZones current = zones;
+        int hit = current.hitTest(x, y);
+        if (hit != zone) {
+            changeZone(current, hit);
+        }
+        latencyMetrics.record(LatencyMetrics.Stage.SNAP, System.nanoTime() - start);
+    }
+
+    private synchronized void changeZone(SnapZones current, int hit) {
+
+        // the drag may have ended since the lookup, the zone of an ended drag is not shown
+        if (!armed || hit == zone) {
+            return;
+        }
+
+        zone = hit;
+        latencyMetrics.increment(LatencyMetrics.Counter.ZONE_CHANGES);
+        if (hit == SnapZones.NO_ZONE) {
+            overlay.hideZones();
+        } else {
+            int monitor = SnapZones.monitorOf(hit);
+            overlay.showZones(current.getTable().getTopology().getMonitor(monitor), current.getZones(monitor), SnapZones.positionOf(hit));
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package backend;
+
+/**
+ * Shows the drop zones of drag-to-snap while a window is dragged. Both methods are called on the mouse hook thread,
+ * only when the zone under the cursor changes, and must return without waiting for the screen to be updated.
+ */
+public interface SnapOverlay {
+
+    /**
+     * Overlay of a session without a user interface, the window is still snapped but nothing is shown
+     */
+    SnapOverlay NONE = new SnapOverlay() {
+        @Override
+        public void showZones(Monitor monitor, Rect[] zones, int highlighted) {
+        }
+
+        @Override
+        public void hideZones() {
+        }
+    };
+
+    /**
+     * Shows the zones of the monitor, by position index, with the zone the window would be dropped into highlighted.
+     * The array is the same for as long as the layout and the monitors do not change.
+     */
+    void showZones(Monitor monitor, Rect[] zones, int highlighted);
+
+    void hideZones();
+
+}
@@ -0,0 +1,128 @@
+package backend;
+
+/**
+ * Drop zones of drag-to-snap on every monitor, compiled from a layout table. The work area of a monitor is covered
+ * by a grid of 16 x 16 pixel cells, each holding the position which contains the cell and whose center is nearest,
+ * so that a large position keeps the part of it which is far from the centers of the smaller positions inside it.
+ * Finding the zone of a point is a bounds check of the monitor and a single array read.
+ */
+final class SnapZones {
+
+    static final int NO_ZONE = -1;
+
+    private static final int CELL_SHIFT = 4;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private final LayoutTable table;
+    private final Rect[] workAreas;
+    private final int[] columns;
+    private final short[][] grids; // position index by cell, row by row, NO_ZONE where no position covers the cell
+    private final Rect[][] zones; // bounds of every position, by monitor
+    private int lastMonitor; // checked first, since the cursor stays on one monitor for most of a drag
+
+    private SnapZones(LayoutTable table) {
+
+        this.table = table;
+        MonitorTopology topology = table.getTopology();
+        int positions = table.getLayout().size();
+
+        workAreas = new Rect[topology.size()];
+        columns = new int[topology.size()];
+        grids = new short[topology.size()][];
+        zones = new Rect[topology.size()][positions];
+
+        for (int m = 0; m < topology.size(); m++) {
+            Rect workArea = topology.getMonitor(m).getWorkArea();
+            workAreas[m] = workArea;
+            for (int p = 0; p < positions; p++)
+                zones[m][p] = table.get(m, p);
+
+            columns[m] = (workArea.width() + CELL_SIZE - 1) >> CELL_SHIFT;
+            int rows = (workArea.height() + CELL_SIZE - 1) >> CELL_SHIFT;
+            grids[m] = new short[columns[m] * rows];
+
+            for (int row = 0; row < rows; row++) {
+                int y = Math.min(workArea.top + (row << CELL_SHIFT) + CELL_SIZE / 2, workArea.bottom - 1);
+                for (int column = 0; column < columns[m]; column++) {
+                    int x = Math.min(workArea.left + (column << CELL_SHIFT) + CELL_SIZE / 2, workArea.right - 1);
+                    grids[m][row * columns[m] + column] = (short) nearestZone(zones[m], x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compiles the zones of every monitor of the table
+     */
+    static SnapZones compile(LayoutTable table) {
+        return new SnapZones(table);
+    }
+
+    private static int nearestZone(Rect[] zones, int x, int y) {
+
+        int nearest = NO_ZONE;
+        long nearestDistance = Long.MAX_VALUE;
+
+        for (int p = 0; p < zones.length; p++) {
+            Rect zone = zones[p];
+            if (x < zone.left || x >= zone.right || y < zone.top || y >= zone.bottom)
+                continue;
+
+            // doubled coordinates keep the center exact
+            long dx = 2L * x - zone.left - zone.right;
+            long dy = 2L * y - zone.top - zone.bottom;
+            long distance = dx * dx + dy * dy;
+            if (distance < nearestDistance) {
+                nearest = p;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Returns the zone under the point as the monitor index shifted left by 16 bits or'ed with the position index,
+     * or NO_ZONE if the point is outside every work area or no position covers it
+     */
+    int hitTest(int x, int y) {
+
+        int monitor = lastMonitor;
+        if (!contains(workAreas[monitor], x, y)) {
+            monitor = -1;
+            for (int m = 0; m < workAreas.length && monitor == -1; m++)
+                if (contains(workAreas[m], x, y))
+                    monitor = m;
+            if (monitor == -1)
+                return NO_ZONE;
+            lastMonitor = monitor;
+        }
+
+        Rect workArea = workAreas[monitor];
+        int position = grids[monitor][((y - workArea.top) >> CELL_SHIFT) * columns[monitor] + ((x - workArea.left) >> CELL_SHIFT)];
+        return position == NO_ZONE ? NO_ZONE : monitor << 16 | position;
+    }
+
+    private static boolean contains(Rect rect, int x, int y) {
+        return x >= rect.left && x < rect.right && y >= rect.top && y < rect.bottom;
+    }
+
+    static int monitorOf(int zone) {
+        return zone >>> 16;
+    }
+
+    static int positionOf(int zone) {
+        return zone & 0xFFFF;
+    }
+
+    LayoutTable getTable() {
+        return table;
+    }
+
+    /**
+     * Bounds of every position on the monitor, by position index, the same array every time
+     */
+    Rect[] getZones(int monitor) {
+        return zones[monitor];
+    }
+
+}
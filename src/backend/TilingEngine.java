@@ -0,0 +1,397 @@
+package backend;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Optional automatic tiling, switched on per monitor. The windows of a tiled monitor are the leaves of a binary space
+ * partition tree, every inner node splits its area in two halves along its longer side. A window which appears splits
+ * the largest leaf, which keeps the tree balanced, and a window which disappears leaves its area to its sibling, so a
+ * change only lays out the subtree it affects and only the windows whose bounds changed are moved, in a single batch.
+ * Once the largest leaf cannot be split without a tile falling below the minimum size, further windows are left floating.
+ */
+public class TilingEngine implements WindowSystem.WindowEventListener {
+
+    static final int MIN_TILE_SIZE = 200; // the smallest width and height of a tile
+
+    private final WindowSystem windowSystem;
+    private final ForegroundTracker foregroundTracker;
+    private final WindowAnimator windowAnimator;
+    private final LatencyMetrics latencyMetrics;
+    private final Map<Long, Tree> trees = new HashMap<>(); // keyed by monitor handle
+    private final Map<Long, Node> leaves = new HashMap<>(); // keyed by window handle
+
+    // leaves whose bounds changed since the last commit, each one at most once
+    private Node[] pending = new Node[16];
+    private int pendingCount;
+
+    public TilingEngine(WindowSystem windowSystem, ForegroundTracker foregroundTracker, WindowAnimator windowAnimator,
+                        LatencyMetrics latencyMetrics) {
+        this.windowSystem = windowSystem;
+        this.foregroundTracker = foregroundTracker;
+        this.windowAnimator = windowAnimator;
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /**
+     * Subscribes to the window events, without them tiled monitors are only laid out when tiling is switched on
+     */
+    void start() {
+        windowSystem.addWindowEventListener(this);
+    }
+
+    /**
+     * Switches tiling of the monitor on or off and returns whether it is on now. Switching it on tiles the resizable
+     * top level windows on the monitor, the topmost ones getting the largest areas, as many as fit. Switching it off
+     * leaves them where they are.
+     */
+    synchronized boolean toggle(Monitor monitor) {
+
+        Tree tree = trees.remove(monitor.getHandle());
+        if (tree != null) {
+            forget(tree.root);
+            return false;
+        }
+
+        tree = new Tree(monitor.getHandle(), monitor.getWorkArea());
+        trees.put(tree.monitor, tree);
+        for (long window : windowSystem.getTopLevelWindows()) {
+            // once a window does not fit, no window after it does either
+            if (!leaves.containsKey(window) && windowSystem.getMonitorFromWindow(window) == tree.monitor && windowSystem.isResizable(window)
+                    && !insert(tree, window))
+                break;
+        }
+        commit();
+        return true;
+    }
+
+    synchronized boolean isTiled(long monitor) {
+        return trees.containsKey(monitor);
+    }
+
+    synchronized boolean isTiledWindow(long window) {
+        return leaves.containsKey(window);
+    }
+
+    /**
+     * Takes the window out of its tree, for a window which is placed by hand, the others close the gap
+     */
+    synchronized void release(long window) {
+        Node leaf = leaves.get(window);
+        if (leaf != null) {
+            remove(leaf);
+            commit();
+        }
+    }
+
+    /**
+     * Lays out every tree whose monitor changed its work area, and drops the trees of detached monitors
+     */
+    synchronized void displayChanged(MonitorTopology topology) {
+
+        Iterator<Tree> iterator = trees.values().iterator();
+        while (iterator.hasNext()) {
+            Tree tree = iterator.next();
+            Monitor monitor = topology.get(tree.monitor);
+            if (monitor == null) {
+                forget(tree.root);
+                iterator.remove();
+            } else if (!monitor.getWorkArea().equals(tree.area)) {
+                tree.area = monitor.getWorkArea();
+                if (tree.root != null)
+                    layout(tree.root, tree.area);
+            }
+        }
+        commit();
+    }
+
+    // window events, every one touches only the tree of the window concerned
+
+    @Override
+    public synchronized void windowShown(long window) {
+
+        // show events of every control in every process arrive here, so the cheapest checks come first
+        if (trees.isEmpty() || leaves.containsKey(window))
+            return;
+
+        Tree tree = trees.get(windowSystem.getMonitorFromWindow(window));
+        if (tree != null && windowSystem.isTopLevelWindow(window) && windowSystem.isResizable(window)) {
+            insert(tree, window);
+            commit();
+        }
+    }
+
+    @Override
+    public void windowHidden(long window) {
+        release(window);
+    }
+
+    @Override
+    public void windowDestroyed(long window) {
+        release(window);
+    }
+
+    /**
+     * A tiled window dropped onto another tiled window of the same monitor swaps places with it, one dropped onto
+     * another monitor moves to the tree of that monitor or stops being tiled, any other drag is undone
+     */
+    @Override
+    public synchronized void moveEnded(long window) {
+
+        Node leaf = leaves.get(window);
+        if (leaf == null)
+            return;
+
+        Rect rect = windowSystem.getWindowRect(window);
+        Tree tree = trees.get(windowSystem.getMonitorFromWindow(window));
+
+        if (tree != leaf.tree) {
+            remove(leaf);
+            if (tree != null)
+                insert(tree, window);
+        } else {
+            Node target = find(tree.root, (rect.left + rect.right) / 2, (rect.top + rect.bottom) / 2);
+            if (target != null && target != leaf) {
+                leaf.window = target.window;
+                target.window = window;
+                leaves.put(leaf.window, leaf);
+                leaves.put(window, target);
+                enqueue(target);
+            }
+            enqueue(leaf); // the window which stays on the leaf is put back into it too
+        }
+        commit();
+    }
+
+    /**
+     * Splits the largest leaf, or takes the whole work area if the tree is empty. Returns false and leaves the window
+     * floating if the halves of the largest leaf would be smaller than the minimum tile size.
+     */
+    private boolean insert(Tree tree, long window) {
+
+        if (tree.root == null) {
+            Node leaf = new Node(tree, window);
+            leaves.put(window, leaf);
+            tree.root = leaf;
+            layout(leaf, tree.area);
+            return true;
+        }
+
+        // every split halves the area, so the leaf nearest to the root is the largest one
+        Node largest = tree.root;
+        while (largest.window == 0)
+            largest = largest.first.nearestLeaf < largest.second.nearestLeaf ? largest.first : largest.second;
+
+        Rect rect = largest.rect;
+        int width = rect.width() >= rect.height() ? rect.width() / 2 : rect.width();
+        int height = rect.width() >= rect.height() ? rect.height() : rect.height() / 2;
+        if (width < MIN_TILE_SIZE || height < MIN_TILE_SIZE)
+            return false;
+
+        Node leaf = new Node(tree, window);
+        leaves.put(window, leaf);
+
+        Node split = new Node(tree, 0);
+        replace(largest, split);
+        split.first = largest;
+        split.second = leaf;
+        largest.parent = split;
+        leaf.parent = split;
+        updateNearestLeaf(split);
+        layout(split, rect);
+        return true;
+    }
+
+    /**
+     * Hands the area of the leaf over to its sibling, which is laid out again together with its subtree
+     */
+    private void remove(Node leaf) {
+
+        Tree tree = leaf.tree;
+        leaves.remove(leaf.window);
+        leaf.tree = null; // a pending move of the leaf is dropped on commit
+
+        Node parent = leaf.parent;
+        if (parent == null) {
+            tree.root = null;
+            return;
+        }
+
+        Node sibling = parent.first == leaf ? parent.second : parent.first;
+        replace(parent, sibling);
+        updateNearestLeaf(sibling.parent);
+        layout(sibling, parent.rect);
+    }
+
+    /**
+     * Puts the replacement where the node was in the tree
+     */
+    private static void replace(Node node, Node replacement) {
+
+        Node parent = node.parent;
+        replacement.parent = parent;
+        if (parent == null)
+            node.tree.root = replacement;
+        else if (parent.first == node)
+            parent.first = replacement;
+        else
+            parent.second = replacement;
+    }
+
+    /**
+     * Recomputes the distance to the nearest leaf from the inner node up to the root, stopping where it did not change
+     */
+    private static void updateNearestLeaf(Node node) {
+
+        for (; node != null; node = node.parent) {
+            int nearestLeaf = 1 + Math.min(node.first.nearestLeaf, node.second.nearestLeaf);
+            if (nearestLeaf == node.nearestLeaf)
+                return;
+            node.nearestLeaf = nearestLeaf;
+        }
+    }
+
+    /**
+     * Assigns the area to the node and divides it among its subtree, leaves whose bounds change are queued for the commit
+     */
+    private void layout(Node node, Rect area) {
+
+        if (node.window != 0) {
+            if (!area.equals(node.rect)) {
+                node.rect = area;
+                enqueue(node);
+            }
+            return;
+        }
+
+        node.rect = area;
+        if (area.width() >= area.height()) {
+            int middle = area.left + area.width() / 2;
+            layout(node.first, new Rect(area.left, area.top, middle, area.bottom));
+            layout(node.second, new Rect(middle, area.top, area.right, area.bottom));
+        } else {
+            int middle = area.top + area.height() / 2;
+            layout(node.first, new Rect(area.left, area.top, area.right, middle));
+            layout(node.second, new Rect(area.left, middle, area.right, area.bottom));
+        }
+    }
+
+    /**
+     * Returns the leaf whose area contains the point, descending only along the path to it
+     */
+    private static Node find(Node node, int x, int y) {
+
+        while (node != null && node.window == 0) {
+            Rect first = node.first.rect;
+            node = x >= first.left && x < first.right && y >= first.top && y < first.bottom ? node.first : node.second;
+        }
+        return node != null && x >= node.rect.left && x < node.rect.right && y >= node.rect.top && y < node.rect.bottom ? node : null;
+    }
+
+    private void enqueue(Node leaf) {
+
+        if (leaf.pending)
+            return;
+
+        if (pendingCount == pending.length)
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        pending[pendingCount++] = leaf;
+        leaf.pending = true;
+    }
+
+    /**
+     * Moves the windows of all queued leaves which are still tiled, in a single batch. Windows which are still sliding
+     * to a position, after arrange or workspace_restore, stop first so that no later frame drags them out of their tile.
+     */
+    private void commit() {
+
+        long[] windows = new long[pendingCount];
+        Rect[] targets = new Rect[pendingCount];
+        long[] monitors = new long[pendingCount];
+        int count = 0;
+
+        for (int i = 0; i < pendingCount; i++) {
+            Node leaf = pending[i];
+            leaf.pending = false;
+            pending[i] = null;
+            if (leaf.tree != null) {
+                windows[count] = leaf.window;
+                targets[count] = leaf.rect;
+                monitors[count] = leaf.tree.monitor;
+                count++;
+            }
+        }
+        pendingCount = 0;
+
+        if (count > 0) {
+            windowAnimator.cancel(windows, count);
+            long start = System.nanoTime();
+            windowSystem.setWindowPositions(windows, targets, count);
+            long callNanos = System.nanoTime() - start;
+            for (int i = 0; i < count; i++) {
+                foregroundTracker.moved(windows[i], targets[i], monitors[i]);
+                FlightEvents.windowMoved(windows[i], WindowManager.TILE_ACTION, targets[i], callNanos);
+            }
+            latencyMetrics.increment(LatencyMetrics.Counter.MOVES);
+        }
+    }
+
+    /**
+     * Forgets every window of the subtree, without moving any of them
+     */
+    private void forget(Node root) {
+
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        if (root != null)
+            stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.window == 0) {
+                stack.push(node.first);
+                stack.push(node.second);
+            } else {
+                leaves.remove(node.window);
+                node.tree = null;
+            }
+        }
+    }
+
+    /**
+     * The tiling of one monitor
+     */
+    private static final class Tree {
+
+        private final long monitor;
+        private Rect area;
+        private Node root;
+
+        private Tree(long monitor, Rect area) {
+            this.monitor = monitor;
+            this.area = area;
+        }
+    }
+
+    /**
+     * A leaf holds a window, an inner node has two children which share its area
+     */
+    private static final class Node {
+
+        private Tree tree; // null once the leaf left its tree
+        private long window; // 0 for an inner node
+        private Node parent;
+        private Node first;
+        private Node second;
+        private Rect rect;
+        private int nearestLeaf; // levels down to the nearest leaf of the subtree, 0 for a leaf
+        private boolean pending;
+
+        private Node(Tree tree, long window) {
+            this.tree = tree;
+            this.window = window;
+        }
+    }
+
+}
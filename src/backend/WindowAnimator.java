@@ -0,0 +1,300 @@
+package backend;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Slides and resizes windows to their targets over a configured time, instead of letting them jump there.
+ * One thread drives every animation, waking once per refresh of the fastest monitor. It moves all windows which are
+ * animating in one deferred positioning call per frame. The easing curve is sampled once into a table. A frame
+ * interpolates from it with integer arithmetic over preallocated arrays, so frames allocate nothing.
+ * A new target for a window which is still animating continues from where the window is at that moment,
+ * instead of waiting for the running animation to finish.
+ */
+public class WindowAnimator implements WindowSystem.WindowEventListener {
+
+    static final int MAX_WINDOWS = 32; // windows animating at once, any further window is moved without animation
+    private static final int EASING_STEPS = 256;
+    private static final int EASING_ONE = 1 << 16; // fixed point 1.0 of the easing table
+    private static final int[] EASING = easeOutCubic();
+
+    private final WindowSystem windowSystem;
+    private final LatencyMetrics latencyMetrics;
+
+    // running animations, guarded by this, the first count entries are in use and bounds are left, top, width, height
+    private final long[] windows = new long[MAX_WINDOWS];
+    private final String[] positions = new String[MAX_WINDOWS];
+    private final int[] from = new int[MAX_WINDOWS * 4];
+    private final int[] to = new int[MAX_WINDOWS * 4];
+    private final long[] startNanos = new long[MAX_WINDOWS];
+    private final long[] durationNanos = new long[MAX_WINDOWS];
+    private int count;
+
+    // the frame being committed, filled under the lock of this, the first committingCount windows are in flight until it landed
+    private final long[] frameWindows = new long[MAX_WINDOWS];
+    private final int[] frameBounds = new int[MAX_WINDOWS * 4];
+    private final String[] finishedPositions = new String[MAX_WINDOWS]; // position of a window whose animation ends with this frame
+
+    private int committingCount;
+    private Thread animator;
+
+    private volatile long framePeriodNanos;
+
+    public WindowAnimator(WindowSystem windowSystem, MonitorTopology topology, LatencyMetrics latencyMetrics) {
+        this.windowSystem = windowSystem;
+        this.latencyMetrics = latencyMetrics;
+        displayChanged(topology);
+    }
+
+    /**
+     * Subscribes to the window events, so that the animation of a closed window ends, and starts the animation thread
+     */
+    void start() {
+        windowSystem.addWindowEventListener(this);
+
+        animator = new Thread(this::run, "window-animations");
+        animator.setDaemon(true);
+        animator.start();
+    }
+
+    /**
+     * Paces the frames to the monitor with the highest refresh rate, so that no monitor misses a step
+     */
+    void displayChanged(MonitorTopology topology) {
+
+        int refreshRate = 0;
+        for (int i = 0; i < topology.size(); i++)
+            refreshRate = Math.max(refreshRate, topology.getMonitor(i).getRefreshRate());
+        framePeriodNanos = 1_000_000_000L / (refreshRate > 0 ? refreshRate : Monitor.DEFAULT_REFRESH_RATE);
+    }
+
+    /**
+     * Starts moving the window from its current bounds to the target, or gives a window which is animating the new target.
+     * Returns false if too many windows are animating already, the caller then moves the window at once.
+     */
+    synchronized boolean animate(long window, String position, Rect current, Rect target, long duration) {
+
+        long now = System.nanoTime();
+        int index = indexOf(window);
+
+        if (index != -1) {
+            if (to[index * 4] == target.left && to[index * 4 + 1] == target.top && to[index * 4 + 2] == target.width()
+                    && to[index * 4 + 3] == target.height()) {
+                positions[index] = position;
+                return true; // already on its way there
+            }
+            // the new animation starts where the window is in this instant, the bounds reported for it may already be stale
+            interpolate(index, now, from, index * 4);
+            latencyMetrics.increment(LatencyMetrics.Counter.RETARGETS);
+        } else {
+            if (count == MAX_WINDOWS)
+                return false;
+            index = count++;
+            windows[index] = window;
+            setBounds(from, index, current);
+        }
+
+        positions[index] = position;
+        setBounds(to, index, target);
+        startNanos[index] = now;
+        durationNanos[index] = duration;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Ends the animation of the window where it is, for a window which is moved at once or closed.
+     * Returns once no frame of it can land anymore, so that a move which follows is not undone by a late frame.
+     */
+    synchronized void cancel(long window) {
+        int index = indexOf(window);
+        if (index != -1)
+            remove(index);
+        awaitFrame(window);
+    }
+
+    /**
+     * Ends the animations of the windows, for windows which are moved together at once
+     */
+    synchronized void cancel(long[] windows, int count) {
+        for (int i = 0; i < count; i++) {
+            int index = indexOf(windows[i]);
+            if (index != -1)
+                remove(index);
+        }
+        for (int i = 0; i < count; i++)
+            awaitFrame(windows[i]);
+    }
+
+    /**
+     * Waits while a frame which holds the window is being committed, its bounds were computed before the cancel
+     */
+    private void awaitFrame(long window) {
+
+        // window events delivered while the frame is committed must not wait for it
+        if (Thread.currentThread() == animator)
+            return;
+
+        while (isCommitting(window)) {
+            try {
+                wait();
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean isCommitting(long window) {
+        for (int i = 0; i < committingCount; i++)
+            if (frameWindows[i] == window)
+                return true;
+        return false;
+    }
+
+    @Override
+    public void windowDestroyed(long window) {
+        cancel(window);
+    }
+
+    /**
+     * Number of windows which are animating
+     */
+    synchronized int getActiveCount() {
+        return count;
+    }
+
+    /**
+     * Commits a frame whenever the previous one is due and sleeps until the next deadline. A frame which is
+     * committed after the following deadline has passed is late, and the frames it overlapped are counted as dropped.
+     */
+    private void run() {
+
+        long deadline = 0;
+
+        while (true) {
+
+            long start;
+            int frameCount;
+
+            synchronized (this) {
+                while (count == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException err) {
+                        return;
+                    }
+                    deadline = 0; // the first frame of a new animation is committed right away
+                }
+                start = System.nanoTime();
+                frameCount = computeFrame(start);
+                committingCount = frameCount;
+            }
+
+            windowSystem.setWindowBounds(frameWindows, frameBounds, frameCount);
+
+            synchronized (this) {
+                committingCount = 0;
+                notifyAll(); // a cancel waiting for the frame may go on
+            }
+
+            long end = System.nanoTime();
+            for (int i = 0; i < frameCount; i++) {
+                if (finishedPositions[i] != null) {
+                    FlightEvents.windowMoved(frameWindows[i], finishedPositions[i], frameBounds[i * 4], frameBounds[i * 4 + 1],
+                            frameBounds[i * 4 + 2], frameBounds[i * 4 + 3], end - start);
+                    finishedPositions[i] = null;
+                }
+            }
+            latencyMetrics.record(LatencyMetrics.Stage.FRAME, end - start);
+            latencyMetrics.increment(LatencyMetrics.Counter.FRAMES);
+
+            long period = framePeriodNanos;
+            deadline = (deadline == 0 ? start : deadline) + period;
+            if (end > deadline) {
+                long missed = (end - deadline) / period + 1;
+                latencyMetrics.add(LatencyMetrics.Counter.FRAMES_DROPPED, missed);
+                deadline += missed * period;
+            }
+
+            for (long remaining; (remaining = deadline - System.nanoTime()) > 0; )
+                LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Fills the frame with the bounds of every animating window at the time, and ends the animations which reach their target
+     */
+    private int computeFrame(long now) {
+
+        int frameCount = 0;
+        for (int i = 0; i < count; i++) {
+            frameWindows[frameCount] = windows[i];
+            boolean finished = interpolate(i, now, frameBounds, frameCount * 4);
+            if (finished) {
+                finishedPositions[frameCount] = positions[i];
+                remove(i--);
+            }
+            frameCount++;
+        }
+        return frameCount;
+    }
+
+    /**
+     * Writes the bounds of the animation at the time into the array, returns true if it has reached its target
+     */
+    private boolean interpolate(int index, long now, int[] bounds, int offset) {
+
+        long elapsed = now - startNanos[index];
+        int step = elapsed >= durationNanos[index] ? EASING_STEPS : (int) (elapsed * EASING_STEPS / durationNanos[index]);
+        long eased = EASING[step];
+
+        for (int i = 0; i < 4; i++) {
+            int start = from[index * 4 + i];
+            bounds[offset + i] = start + (int) ((to[index * 4 + i] - start) * eased >> 16);
+        }
+        return step == EASING_STEPS;
+    }
+
+    private int indexOf(long window) {
+        for (int i = 0; i < count; i++)
+            if (windows[i] == window)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Moves the last animation into the place of the removed one
+     */
+    private void remove(int index) {
+
+        int last = --count;
+        windows[index] = windows[last];
+        positions[index] = positions[last];
+        positions[last] = null;
+        System.arraycopy(from, last * 4, from, index * 4, 4);
+        System.arraycopy(to, last * 4, to, index * 4, 4);
+        startNanos[index] = startNanos[last];
+        durationNanos[index] = durationNanos[last];
+    }
+
+    private static void setBounds(int[] bounds, int index, Rect rect) {
+        bounds[index * 4] = rect.left;
+        bounds[index * 4 + 1] = rect.top;
+        bounds[index * 4 + 2] = rect.width();
+        bounds[index * 4 + 3] = rect.height();
+    }
+
+    /**
+     * Samples 1 - (1 - t)^3 in fixed point, fast at first and settling gently, the last entry being exactly the target
+     */
+    private static int[] easeOutCubic() {
+
+        int[] easing = new int[EASING_STEPS + 1];
+        for (int i = 0; i <= EASING_STEPS; i++) {
+            double rest = 1 - (double) i / EASING_STEPS;
+            easing[i] = (int) Math.round((1 - rest * rest * rest) * EASING_ONE);
+        }
+        return easing;
+    }
+
+}
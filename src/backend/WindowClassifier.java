@@ -0,0 +1,110 @@
+package backend;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Finds the rule of a window and remembers it per window handle, so the process, class and title of a window are read
+ * once and not for every shortcut. A remembered match is kept until the title of the window changes, the window
+ * is destroyed or the rules are reloaded. Windows which appear are put at the place of their rule.
+ */
+public class WindowClassifier implements WindowSystem.WindowEventListener {
+
+    private static final int TITLE_UNKNOWN = -2; // the title has to be matched against the candidates again
+
+    private final WindowSystem windowSystem;
+    private final BiConsumer<Long, String> placer;
+    private final Map<Long, Classification> classifications = new ConcurrentHashMap<>();
+
+    /**
+     * The placer receives a window which appeared and the position its rule puts it at
+     */
+    public WindowClassifier(WindowSystem windowSystem, BiConsumer<Long, String> placer) {
+        this.windowSystem = windowSystem;
+        this.placer = placer;
+    }
+
+    void start() {
+        windowSystem.addWindowEventListener(this);
+    }
+
+    /**
+     * Returns the position the rule of the window puts in place of the given one, or the position itself
+     */
+    String resolve(long window, String position) {
+
+        if (ShortcutManager.getBindings().getRules().isEmpty())
+            return position;
+
+        WindowRule rule = classify(window);
+        return rule == null ? position : rule.override(position);
+    }
+
+    /**
+     * Returns the first rule which matches the window, or null
+     */
+    WindowRule classify(long window) {
+
+        WindowRules rules = ShortcutManager.getBindings().getRules();
+        Classification classification = classifications.get(window);
+
+        if (classification == null || classification.rules != rules) {
+            long[] candidates = rules.getCandidates(windowSystem.getProcessName(window).toLowerCase(Locale.ROOT),
+                    windowSystem.getClassName(window).toLowerCase(Locale.ROOT));
+            classification = new Classification(rules, candidates, TITLE_UNKNOWN);
+        }
+        if (classification.rule == TITLE_UNKNOWN) {
+            long[] candidates = classification.candidates;
+            String title = rules.needsTitle(candidates) ? windowSystem.getTitle(window) : "";
+            classification = new Classification(rules, candidates, rules.match(candidates, title));
+            classifications.put(window, classification);
+        }
+        return classification.rule == WindowRules.NO_RULE ? null : rules.getRule(classification.rule);
+    }
+
+    /**
+     * Puts a window which is seen for the first time at the place of its rule
+     */
+    @Override
+    public void windowShown(long window) {
+
+        // show events of every control in every process arrive here, so the cheapest checks come first
+        if (ShortcutManager.getBindings().getRules().isEmpty() || classifications.containsKey(window)
+                || !windowSystem.isTopLevelWindow(window))
+            return;
+
+        WindowRule rule = classify(window);
+        if (rule != null && rule.getPlace() != null)
+            placer.accept(window, rule.getPlace());
+    }
+
+    @Override
+    public void titleChanged(long window) {
+        classifications.computeIfPresent(window, (key, classification) ->
+                new Classification(classification.rules, classification.candidates, TITLE_UNKNOWN));
+    }
+
+    @Override
+    public void windowDestroyed(long window) {
+        classifications.remove(window);
+    }
+
+    /**
+     * Rule of a window for one set of rules, made of the candidates by process and class and the winner among them
+     */
+    private static final class Classification {
+
+        private final WindowRules rules;
+        private final long[] candidates;
+        private final int rule;
+
+        private Classification(WindowRules rules, long[] candidates, int rule) {
+            this.rules = rules;
+            this.candidates = candidates;
+            this.rule = rule;
+        }
+    }
+
+}
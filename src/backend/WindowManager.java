@@ -2,190 +2,554 @@ package backend;
 
 import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
 import com.github.kwhat.jnativehook.keyboard.NativeKeyListener;
-import com.sun.jna.platform.win32.WinDef;
-import com.sun.jna.platform.win32.User32;
-import com.sun.jna.platform.win32.WinUser;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import static backend.ShortcutManager.loadShortcuts;
-import static backend.ShortcutManager.savedShortcuts;
 
 public class WindowManager implements NativeKeyListener {
 
-    private static final User32 USER32 = User32.INSTANCE;
-    private static final Set<Integer> pressedKeys = new HashSet<>();
+    private static final long[] pressedKeys = new long[ChordIndex.WORDS]; // bitset of the currently held JNA key codes
+    private static final long[] strokeKeys = new long[ChordIndex.WORDS]; // the pressed key with the held modifiers only
+    private static final int[] MODIFIERS = {KeyCodeConverter.JNA_SHIFT, KeyCodeConverter.JNA_CONTROL, KeyCodeConverter.JNA_ALT, KeyCodeConverter.JNA_WINDOWS};
+    private static final int ACTION_QUEUE_CAPACITY = 64; // maximum number of distinct windows waiting to be moved
+    static final String ARRANGE_ACTION = "arrange"; // shortcut action which arranges several windows at once
+    static final String WORKSPACE_SAVE_ACTION = "workspace_save"; // saves the arrangement of all windows
+    static final String WORKSPACE_RESTORE_ACTION = "workspace_restore"; // puts all windows back where they were saved
+    static final String TILE_ACTION = "tile"; // switches automatic tiling of the monitor on or off
+    private static final String WORKSPACE_FILE = "workspace.bin";
+    private static final String[] HORIZONTAL_POSITIONS = {"top_left", "top_right", "bottom_left", "bottom_right"};
+    private static final String[] VERTICAL_POSITIONS = {"top", "middle", "bottom"};
     public static boolean applicationIsPaused;
+    private static final LatencyMetrics latencyMetrics = new LatencyMetrics();
+    private final ActionExecutor actionExecutor;
+    private final WindowSystem windowSystem;
+    private final ForegroundTracker foregroundTracker;
+    private final TilingEngine tilingEngine;
+    private final WindowClassifier windowClassifier;
+    private final ProfileSelector profileSelector;
+    private final WindowAnimator windowAnimator;
+    private final SnapEngine snapEngine;
+    private volatile LayoutTable layoutTable;
+
+    // progress through a shortcut made of several chords, only touched by the thread which delivers key events
+    private SequenceTrie sequenceTrie; // trie the state belongs to, a state is meaningless in any other trie
+    private int sequenceState = SequenceTrie.ROOT;
+    private long lastChordNanos;
+
+    // shortcut which fired on the last key press, fired again by auto-repeats only if a repeat interval is configured
+    private String heldPosition;
+    private long lastFiredNanos;
 
     /**
-     * Constructor which loads saved shortcuts
+     * Constructor which loads saved shortcuts and manages windows through the native window system
      */
     public WindowManager() {
+        this(new JnaWindowSystem());
         loadShortcuts();
     }
 
     /**
-     * Retrieves the height of the monitor in pixels
+     * Constructor which captures the monitor topology of the given window system and starts the executor which moves windows
      */
-    static int getMonitorHeight() {
-
-        WinDef.HWND currentlyFocusedWindow = USER32.GetForegroundWindow(); // retrieves the handle of the currently focused window
+    public WindowManager(WindowSystem windowSystem) {
+        this.windowSystem = windowSystem;
+        layoutTable = LayoutTable.compile(ShortcutManager.getBindings().getLayout(), MonitorTopology.capture(windowSystem));
+        foregroundTracker = new ForegroundTracker(windowSystem);
+        windowAnimator = new WindowAnimator(windowSystem, layoutTable.getTopology(), latencyMetrics);
+        tilingEngine = new TilingEngine(windowSystem, foregroundTracker, windowAnimator, latencyMetrics);
+        profileSelector = new ProfileSelector(windowSystem);
+
+        // monitors only change on display or work area change notifications, so the snapshot is replaced only then
+        windowSystem.setDisplayChangeListener(() -> {
+            LayoutTable table = LayoutTable.compile(ShortcutManager.getBindings().getLayout(), MonitorTopology.capture(windowSystem));
+            layoutTable = table;
+            foregroundTracker.displayChanged();
+            tilingEngine.displayChanged(table.getTopology());
+            windowAnimator.displayChanged(table.getTopology());
+        });
+        foregroundTracker.start();
+        profileSelector.start();
+        tilingEngine.start();
+        windowAnimator.start();
+
+        actionExecutor = new ActionExecutor(ACTION_QUEUE_CAPACITY, this::moveWindow, latencyMetrics);
+        windowClassifier = new WindowClassifier(windowSystem, this::executeRuleAction);
+        windowClassifier.start();
+        snapEngine = new SnapEngine(windowSystem, tilingEngine, this::getLayoutTable, this::executeRuleAction, latencyMetrics);
+        snapEngine.start();
+    }
 
-        if (currentlyFocusedWindow != null) {
+    /**
+     * Returns the layout table for the current monitors, compiled again only if the layout was reloaded meanwhile
+     */
+    private LayoutTable getLayoutTable() {
 
-            WinDef.RECT windowRect = new WinDef.RECT(); // stores the dimension of the currently focused window
-            USER32.GetWindowRect(currentlyFocusedWindow, windowRect); // fill the RECT object with the position and size of the focused window
+        LayoutTable table = layoutTable;
+        Layout layout = ShortcutManager.getBindings().getLayout();
+        if (table.getLayout() != layout) {
+            table = LayoutTable.compile(layout, table.getTopology());
+            layoutTable = table;
+        }
+        return table;
+    }
 
-            WinUser.MONITORINFO monitorInfo = new WinUser.MONITORINFO(); // create an object to store information about the monitor
-            // get the monitor that contains the focused window and fill the monitorInfo object with details
-            USER32.GetMonitorInfo(USER32.MonitorFromRect(windowRect, WinUser.MONITOR_DEFAULTTONEAREST), monitorInfo);
+    /**
+     * Handles key press events by converting the JNH key codes to a JNA key codes
+     * and triggering the corresponding window movement when the held keys exactly match a saved shortcut
+     */
+    @Override
+    public void nativeKeyPressed(NativeKeyEvent e) {
 
-            // calculate and return the height of the monitor
-            return monitorInfo.rcMonitor.bottom - monitorInfo.rcMonitor.top;
+        // if the application is paused, exit the current method without executing further logic.
+        if (applicationIsPaused) {
+            return;
         }
-        return 0; // return 0 if no window is focused
+
+        keyPressed(e.getKeyCode());
     }
 
     /**
-     * Retrieves the height of the monitor in pixels
+     * Advances through the saved shortcuts with the held keys, also used to drive synthetic key events.
+     * A shortcut is either a single chord or several chords pressed one after another.
      */
-    static int getMonitorWidth() {
+    void keyPressed(int jnhKeyCode) {
 
-        WinDef.HWND currentlyFocusedWindow = USER32.GetForegroundWindow(); // retrieves the handle of the currently focused window
+        long now = System.nanoTime();
+        int jnaKeyCode = KeyCodeConverter.jnativehookToJNA(jnhKeyCode); // get the JNA key code using converter
 
-        if (currentlyFocusedWindow != null) {
+        // a press of a key which is already held is an auto-repeat of the keyboard, shortcuts fire on the first press only
+        if (ChordIndex.contains(pressedKeys, jnaKeyCode)) {
+            latencyMetrics.increment(LatencyMetrics.Counter.KEY_REPEATS);
+            repeatHeldShortcut(now);
+            return;
+        }
 
-            WinDef.RECT windowRect = new WinDef.RECT(); // stores the dimension of the currently focused window
-            USER32.GetWindowRect(currentlyFocusedWindow, windowRect); // fill the RECT object with the position and size of the focused window
+        // add the key code to the pressed keys bitset
+        ChordIndex.set(pressedKeys, jnaKeyCode);
+        heldPosition = null;
 
-            WinUser.MONITORINFO monitorInfo = new WinUser.MONITORINFO(); // create an object to store information about the monitor
-            // get the monitor that contains the focused window and fill the monitorInfo object with details
-            USER32.GetMonitorInfo(USER32.MonitorFromRect(windowRect, WinUser.MONITOR_DEFAULTTONEAREST), monitorInfo);
+        Bindings bindings = ShortcutManager.getBindings();
+        SequenceTrie trie = profileSelector.getTrie(bindings); // the shortcuts of the application in the foreground
 
-            // calculate and return the height of the monitor
-            return monitorInfo.rcMonitor.right - monitorInfo.rcMonitor.left;
+        // an unfinished sequence is abandoned when it timed out or the shortcuts were replaced meanwhile
+        if (sequenceState != SequenceTrie.ROOT && (trie != sequenceTrie || now - lastChordNanos > bindings.getSequenceTimeoutNanos())) {
+            sequenceState = SequenceTrie.ROOT;
         }
-        return 0; // return 0 if no window is focused
+
+        int next = trie.next(sequenceState, pressedKeys);
+
+        if (next == SequenceTrie.NO_STATE && sequenceState != SequenceTrie.ROOT) {
+            // when typing fast the key of the previous chord may still be held, so only the new key and the modifiers count
+            Arrays.fill(strokeKeys, 0L);
+            ChordIndex.set(strokeKeys, jnaKeyCode);
+            for (int modifier : MODIFIERS)
+                if (ChordIndex.contains(pressedKeys, modifier))
+                    ChordIndex.set(strokeKeys, modifier);
+            next = trie.next(sequenceState, strokeKeys);
+        }
+
+        // a key which does not continue the sequence starts over, modifiers are let through since they begin the next chord
+        if (next == SequenceTrie.NO_STATE && sequenceState != SequenceTrie.ROOT && !KeyCodeConverter.isModifier(jnaKeyCode)) {
+            sequenceState = SequenceTrie.ROOT;
+            next = trie.next(SequenceTrie.ROOT, pressedKeys);
+        }
+
+        if (next == SequenceTrie.NO_STATE) {
+            latencyMetrics.record(LatencyMetrics.Stage.MATCH, System.nanoTime() - now);
+            return;
+        }
+
+        // if the held keys complete a saved shortcut move the window, otherwise wait for the next chord
+        String position = trie.getPosition(next);
+        long matchNanos = System.nanoTime() - now;
+        latencyMetrics.record(LatencyMetrics.Stage.MATCH, matchNanos);
+        if (position != null) {
+            sequenceState = SequenceTrie.ROOT;
+            heldPosition = position;
+            lastFiredNanos = now;
+            FlightEvents.keyMatched(position, matchNanos, false);
+            executeShortcutAction(position, now);
+        } else {
+            sequenceTrie = trie;
+            sequenceState = next;
+            lastChordNanos = now;
+        }
+    }
+
+    @Override
+    public void nativeKeyReleased(NativeKeyEvent e) {
+        keyReleased(e.getKeyCode());
+    }
+
+    void keyReleased(int jnhKeyCode) {
+
+        int jnaKeyCode = KeyCodeConverter.jnativehookToJNA(jnhKeyCode);
+
+        ChordIndex.clear(pressedKeys, jnaKeyCode);
+        heldPosition = null;
     }
 
     /**
-     * Handles key press events by converting the JNH key codes to a JNA key codes
-     * and triggering the corresponding window movement based on saved shortcuts
+     * Fires the shortcut which is held down again, if a repeat interval is configured and it has passed since the last firing
      */
-    @Override
-    public void nativeKeyPressed(NativeKeyEvent e) {
+    private void repeatHeldShortcut(long now) {
 
-        // if the application is paused, exit the current method without executing further logic.
-        if (applicationIsPaused) {
+        long repeatInterval = ShortcutManager.getBindings().getRepeatIntervalNanos();
+        if (heldPosition == null || repeatInterval == Bindings.NO_REPEAT || now - lastFiredNanos < repeatInterval) {
             return;
         }
 
-        int jnhKeyCode = e.getKeyCode();
-        int jnaKeyCode = KeyCodeConverter.jnativehookToJNA.getOrDefault(jnhKeyCode, -1); // get the JNA key code using converter
+        lastFiredNanos = now;
+        latencyMetrics.increment(LatencyMetrics.Counter.REPEATS_FIRED);
+        FlightEvents.keyMatched(heldPosition, System.nanoTime() - now, true);
+        executeShortcutAction(heldPosition, now);
+    }
+
+    /**
+     * Hands the currently focused window and the position over to the action executor, so that the window
+     * is moved without blocking the thread which delivers global key events
+     */
+    private void executeShortcutAction(String position, long pressedNanos) {
+
+        long start = System.nanoTime();
+        long currentlyFocusedWindow = foregroundTracker.get().getWindow(); // kept up to date by window events, no native call
 
-        // add the key code to the pressed keys set
-        pressedKeys.add(jnaKeyCode);
+        if (currentlyFocusedWindow != 0) {
+            actionExecutor.submit(currentlyFocusedWindow, position, pressedNanos);
+        }
+        latencyMetrics.record(LatencyMetrics.Stage.FOREGROUND, System.nanoTime() - start);
+    }
 
+    /**
+     * Hands a window which just appeared and the place of its rule, or a window dropped into a snap zone,
+     * over to the action executor
+     */
+    private void executeRuleAction(long window, String place) {
+        actionExecutor.submit(window, place);
+    }
+
+    /**
+     * Move the window to the specific position, invoked by the action executor.
+     * The target is looked up in the layout table of the monitor containing the window, which is precomputed
+     * from the monitor work area so that the taskbar is excluded. A position followed by '@' and a monitor number
+     * puts the window on that monitor instead, if there is such a monitor.
+     */
+    void moveWindow(long window, String position) {
+        Log.info("Executing action", "position", position, "window", window);
 
-        // checks if pressed keys matches any saved shortcuts
-        for (Map.Entry<String, List<Integer>> entry : savedShortcuts.entrySet()) {
+        long start = System.nanoTime();
+        LayoutTable table = getLayoutTable();
 
-            String position = entry.getKey();
-            List<Integer> keyCodes = entry.getValue();
+        // the rule of the window may put another position in place of this one, the match is cached per window
+        position = windowClassifier.resolve(window, position);
 
-            // if all pressed keys match the key codes for a saved shortcut, move the window
-            if (pressedKeys.containsAll(keyCodes)) {
-                executeShortcutAction(position);
+        int requestedMonitor = -1;
+        int separator = position.indexOf('@');
+        if (separator != -1) {
+            requestedMonitor = parseMonitorNumber(position, separator + 1) - 1;
+            position = position.substring(0, separator);
+        }
+
+        // workspace actions concern every window, not the one they were submitted with
+        if (position.equals(WORKSPACE_SAVE_ACTION)) {
+            saveWorkspace();
+            return;
+        }
+        if (position.equals(WORKSPACE_RESTORE_ACTION)) {
+            restoreWorkspace(table);
+            latencyMetrics.record(LatencyMetrics.Stage.PLACE, System.nanoTime() - start);
+            return;
+        }
+
+        // the focused window is already described by the tracker, other windows (from the control socket) are looked up
+        ForegroundWindow foreground = foregroundTracker.get();
+        boolean tracked = foreground.getWindow() == window;
+        long monitorHandle = tracked ? foreground.getMonitor() : windowSystem.getMonitorFromWindow(window);
+        int monitorIndex = table.getTopology().indexOf(monitorHandle);
+
+        if (monitorIndex == -1) {
+            // the monitor is not in the snapshot yet, because its display change notification has not arrived yet
+            table = LayoutTable.compile(table.getLayout(), MonitorTopology.capture(windowSystem));
+            layoutTable = table;
+            monitorIndex = table.getTopology().indexOf(monitorHandle);
+
+            if (monitorIndex == -1) {
                 return;
             }
         }
+
+        if (requestedMonitor >= 0 && requestedMonitor < table.getTopology().size()) {
+            monitorIndex = requestedMonitor;
+            monitorHandle = table.getTopology().getMonitor(monitorIndex).getHandle();
+        }
+
+        long placeStart = System.nanoTime();
+        latencyMetrics.record(LatencyMetrics.Stage.MONITOR, placeStart - start);
+
+        if (position.equals(TILE_ACTION)) {
+            tilingEngine.toggle(table.getTopology().getMonitor(monitorIndex));
+        } else if (position.equals(ARRANGE_ACTION)) {
+            arrangeWindows(table, monitorIndex);
+        } else {
+            int positionIndex = table.getLayout().indexOf(position);
+            if (positionIndex != -1) {
+                // a window placed by hand is no longer tiled, otherwise the next change of its tree would move it back
+                tilingEngine.release(window);
+                Rect windowRect = tracked ? foreground.getRect() : windowSystem.getWindowRect(window);
+                boolean resizable = tracked ? foreground.isResizable() : windowSystem.isResizable(window);
+                Rect target = fitWindow(resizable, windowRect, table.get(monitorIndex, positionIndex));
+
+                long animationNanos = ShortcutManager.getBindings().getAnimationNanos();
+
+                // moving a window onto itself still makes Windows redraw it, so a window already in place is left alone
+                if (target.equals(windowRect)) {
+                    latencyMetrics.increment(LatencyMetrics.Counter.MOVES_SKIPPED);
+                } else if (animationNanos != Bindings.NO_ANIMATION && windowAnimator.animate(window, position, windowRect, target, animationNanos)) {
+                    // the tracker takes the target over right away, the window events of the frames update it on the way
+                    foregroundTracker.moved(window, target, monitorHandle);
+                } else {
+                    windowAnimator.cancel(window);
+                    long callStart = System.nanoTime();
+                    windowSystem.setWindowPosition(window, target.left, target.top, target.width(), target.height());
+                    FlightEvents.windowMoved(window, position, target, System.nanoTime() - callStart);
+                    foregroundTracker.moved(window, target, monitorHandle);
+                    latencyMetrics.increment(LatencyMetrics.Counter.MOVES);
+                }
+            }
+        }
+        latencyMetrics.record(LatencyMetrics.Stage.PLACE, System.nanoTime() - placeStart);
     }
 
-    @Override
-    public void nativeKeyReleased(NativeKeyEvent e) {
+    /**
+     * Arranges the topmost windows of the monitor into the corner positions on a horizontal monitor,
+     * or into the top, middle and bottom positions on a vertical one, committing all of them in a single batch
+     */
+    private void arrangeWindows(LayoutTable table, int monitorIndex) {
+
+        Monitor monitor = table.getTopology().getMonitor(monitorIndex);
+        Rect workArea = monitor.getWorkArea();
+        String[] positions = workArea.width() >= workArea.height() ? HORIZONTAL_POSITIONS : VERTICAL_POSITIONS;
 
-        int jnhKeyCode = e.getKeyCode();
-        int jnaKeyCode = KeyCodeConverter.jnativehookToJNA.getOrDefault(jnhKeyCode, -1);
+        long[] windows = new long[positions.length];
+        Rect[] targets = new Rect[positions.length];
+        Rect[] windowRects = new Rect[positions.length];
+        int count = 0;
 
-        pressedKeys.remove(jnaKeyCode);
+        // top level windows are in z-order, so the most recently used windows are arranged first
+        for (long window : windowSystem.getTopLevelWindows()) {
+            if (count == positions.length) {
+                break;
+            }
+            if (windowSystem.getMonitorFromWindow(window) == monitor.getHandle()) {
+                windows[count] = window;
+                windowRects[count] = windowSystem.getWindowRect(window);
+                targets[count] = fitWindow(windowSystem.isResizable(window), windowRects[count],
+                        table.get(monitorIndex, table.getLayout().indexOf(positions[count])));
+                count++;
+            }
+        }
+
+        // windows which are already in place are left out of the batch
+        int moved = 0;
+        for (int i = 0; i < count; i++) {
+            tilingEngine.release(windows[i]);
+            if (targets[i].equals(windowRects[i])) {
+                latencyMetrics.increment(LatencyMetrics.Counter.MOVES_SKIPPED);
+            } else {
+                windows[moved] = windows[i];
+                windowRects[moved] = windowRects[i];
+                targets[moved] = targets[i];
+                moved++;
+            }
+        }
+        moved = animate(windows, windowRects, targets, moved, ARRANGE_ACTION);
+
+        if (moved > 0) {
+            long start = System.nanoTime();
+            windowSystem.setWindowPositions(windows, targets, moved);
+            long callNanos = System.nanoTime() - start;
+            for (int i = 0; i < moved; i++) {
+                foregroundTracker.moved(windows[i], targets[i], monitor.getHandle());
+                FlightEvents.windowMoved(windows[i], ARRANGE_ACTION, targets[i], callNanos);
+            }
+            latencyMetrics.increment(LatencyMetrics.Counter.MOVES);
+        }
     }
 
     /**
-     * Move the currently focused window to the specific position
+     * Writes the identity and bounds of every top level window to the workspace file next to the shortcuts file
      */
-    private void executeShortcutAction(String position) {
-        System.out.println("Executing action for position: " + position);
+    private void saveWorkspace() {
 
-        switch (position) {
-            case "top_left":
-                moveWindowToPosition(0, 0, true, getMonitorHeight() / 2);
-                break;
-            case "top_right":
-                moveWindowToPosition(getMonitorWidth() / 2, 0, true, getMonitorHeight() / 2);
-                break;
-            case "bottom_left":
-                moveWindowToPosition(0, getMonitorHeight() / 2, true, getMonitorHeight() / 2);
-                break;
-            case "bottom_right":
-                moveWindowToPosition(getMonitorWidth() / 2, getMonitorHeight() / 2, true, getMonitorHeight() / 2);
-                break;
-            case "top":
-                moveWindowToPosition(0, 0, false, getMonitorHeight() / 3);
-                break;
-            case "middle":
-                moveWindowToPosition(0, getMonitorHeight() / 3, false, getMonitorHeight() / 3);
-                break;
-            case "bottom":
-                moveWindowToPosition(0, getMonitorHeight() * 2 / 3, false, getMonitorHeight() / 3);
-                break;
+        try {
+            WorkspaceSnapshot.capture(windowSystem).write(getWorkspaceFile());
+        } catch (IOException err) {
+            Log.error("Workspace could not be saved", err);
         }
     }
 
     /**
-     * Moves the currently focused window to a new position on the screen and resizes it based on the provided parameters.
-     * It calculates the new position of the window relative to the top left corner of the monitor
-     * containing the focused window. It also determines the new dimensions of the window, considering whether
-     * the window is resizable and the type of screen (horizontal or vertical).
+     * Moves every window found in the workspace file back to its saved bounds, in a single batch
      */
-    private void moveWindowToPosition(int windowNewXPosition, int windowNewYPosition, boolean horizontal, int height) {
+    private void restoreWorkspace(LayoutTable table) {
+
+        WorkspaceSnapshot snapshot;
+        try {
+            snapshot = WorkspaceSnapshot.read(getWorkspaceFile());
+        } catch (NoSuchFileException err) {
+            Log.warn("No workspace has been saved yet");
+            return;
+        } catch (IOException err) {
+            Log.error("Workspace could not be read", err);
+            return;
+        }
+
+        long[] windows = new long[snapshot.size()];
+        Rect[] targets = new Rect[snapshot.size()];
+        Rect[] windowRects = new Rect[snapshot.size()];
+        int count = snapshot.match(windowSystem, table.getTopology(), windows, targets);
+
+        // windows which are already in place are left out of the batch
+        int moved = 0;
+        for (int i = 0; i < count; i++) {
+            tilingEngine.release(windows[i]);
+            Rect windowRect = windowSystem.getWindowRect(windows[i]);
+            if (targets[i].equals(windowRect)) {
+                latencyMetrics.increment(LatencyMetrics.Counter.MOVES_SKIPPED);
+            } else {
+                windows[moved] = windows[i];
+                windowRects[moved] = windowRect;
+                targets[moved] = targets[i];
+                moved++;
+            }
+        }
+        moved = animate(windows, windowRects, targets, moved, WORKSPACE_RESTORE_ACTION);
+
+        if (moved > 0) {
+            long start = System.nanoTime();
+            windowSystem.setWindowPositions(windows, targets, moved);
+            long callNanos = System.nanoTime() - start;
+            // the monitor of a restored window is not known here, the tracker captures the focused one again
+            for (int i = 0; i < moved; i++) {
+                foregroundTracker.locationChanged(windows[i]);
+                FlightEvents.windowMoved(windows[i], WORKSPACE_RESTORE_ACTION, targets[i], callNanos);
+            }
+            latencyMetrics.increment(LatencyMetrics.Counter.MOVES);
+        }
+    }
+
+    /**
+     * Hands the windows over to the animator if animations are configured. Returns how many windows are left to be
+     * moved at once, moved to the front of the arrays, which are all of them without animations.
+     */
+    private int animate(long[] windows, Rect[] windowRects, Rect[] targets, int count, String position) {
+
+        long animationNanos = ShortcutManager.getBindings().getAnimationNanos();
+        int remaining = 0;
+        for (int i = 0; i < count; i++) {
+            if (animationNanos == Bindings.NO_ANIMATION || !windowAnimator.animate(windows[i], position, windowRects[i], targets[i], animationNanos)) {
+                windowAnimator.cancel(windows[i]);
+                windows[remaining] = windows[i];
+                targets[remaining] = targets[i];
+                remaining++;
+            }
+        }
+        return remaining;
+    }
+
+    private static Path getWorkspaceFile() {
+        return ShortcutManager.getShortcutsFile().resolveSibling(WORKSPACE_FILE);
+    }
 
-        WinDef.HWND currentlyFocusedWindow = USER32.GetForegroundWindow(); // retrieves the handle of the currently focused window
+    /**
+     * Resizable windows fill the whole cell, the others keep their current size and are moved to the top left corner of the cell
+     */
+    private static Rect fitWindow(boolean resizable, Rect windowRect, Rect cell) {
 
-        if (currentlyFocusedWindow != null) {
+        if (resizable) {
+            return cell;
+        }
 
-            WinDef.RECT windowRect = new WinDef.RECT(); // stores the dimension of the currently focused window
-            USER32.GetWindowRect(currentlyFocusedWindow, windowRect); // fill the RECT object with the position and size of the focused window
+        return new Rect(cell.left, cell.top, cell.left + windowRect.width(), cell.top + windowRect.height());
+    }
 
-            WinUser.MONITORINFO monitorInfo = new WinUser.MONITORINFO(); // create an object to store information about the focused monitor
-            // get the monitor that contains the focused window and fill the monitorInfo object with details
-            USER32.GetMonitorInfo(USER32.MonitorFromRect(windowRect, WinUser.MONITOR_DEFAULTTONEAREST), monitorInfo);
+    /**
+     * Queues the position for the window through the same executor the shortcuts use, for actions which do not come
+     * from the keyboard. Returns false if the position is unknown or the queue is full.
+     */
+    public boolean submit(long window, String position) {
 
-            // check if window is resizable
-            int style = USER32.GetWindowLong(currentlyFocusedWindow, WinUser.GWL_STYLE);
-            boolean isResizable = (style & WinUser.WS_SIZEBOX) != 0;
+        if (!isKnownPosition(position)) {
+            return false;
+        }
+        return actionExecutor.submit(window, position);
+    }
 
-            // determine new position of the focused window relative to the monitors top left corner
-            int xNewPosition = monitorInfo.rcMonitor.left + windowNewXPosition;
-            int yNewPosition = monitorInfo.rcMonitor.top + windowNewYPosition;
+    /**
+     * Checks whether the position is a cell of the current layout or one of the actions which are not bound to a cell,
+     * optionally followed by '@' and a monitor number
+     */
+    static boolean isKnownPosition(String position) {
 
-            // calculate the width of the monitor
-            int monitorWidth = monitorInfo.rcMonitor.right - monitorInfo.rcMonitor.left;
+        int separator = position.indexOf('@');
+        if (separator != -1) {
+            if (parseMonitorNumber(position, separator + 1) == -1) {
+                return false;
+            }
+            position = position.substring(0, separator);
+        }
+        return position.equals(ARRANGE_ACTION) || position.equals(WORKSPACE_SAVE_ACTION) || position.equals(WORKSPACE_RESTORE_ACTION)
+                || position.equals(TILE_ACTION) || ShortcutManager.getBindings().getLayout().indexOf(position) != -1;
+    }
 
-            // determine new dimensions of the focused window based on resizability and position type
-            int newWidth = isResizable ? (horizontal ? monitorWidth / 2 : monitorWidth) : (windowRect.right - windowRect.left);
-            int newHeight = isResizable ? height : (windowRect.bottom - windowRect.top);
+    /**
+     * Returns the monitor number which starts at the index of the position, or -1 if it is not a number from 1 on
+     */
+    private static int parseMonitorNumber(String position, int index) {
 
-            USER32.SetWindowPos(
-                    currentlyFocusedWindow,
-                    null,
-                    xNewPosition,
-                    yNewPosition,
-                    newWidth,
-                    newHeight,
-                    User32.SWP_NOACTIVATE
-            );
+        int number = 0;
+        for (int i = index; i < position.length(); i++) {
+            char c = position.charAt(i);
+            if (c < '0' || c > '9' || number > 99) {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
         }
+        return number == 0 ? -1 : number;
+    }
+
+    public WindowSystem getWindowSystem() {
+        return windowSystem;
+    }
+
+    /**
+     * Returns the handle of the focused window as last reported by the window events, 0 if there is none
+     */
+    public long getForegroundWindow() {
+        return foregroundTracker.get().getWindow();
+    }
+
+    /**
+     * Returns the executor which applies window actions, for reading its queue and latency metrics
+     */
+    public ActionExecutor getActionExecutor() {
+        return actionExecutor;
+    }
+
+    /**
+     * Returns the drag-to-snap engine, which follows the mouse while a window is dragged
+     */
+    public SnapEngine getSnapEngine() {
+        return snapEngine;
+    }
+
+    /**
+     * Returns the latency histograms of every stage between a key press and the window being moved
+     */
+    public static LatencyMetrics getLatencyMetrics() {
+        return latencyMetrics;
     }
 
     /**
@@ -0,0 +1,109 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A placement rule for the windows of an application, defined in the shortcuts file.
+ * A rule matches a window by process, window class and title, all of which are optional and compared ignoring case.
+ * The title is a pattern: the parts between '*' have to appear in the title in this order, anywhere in it.
+ * A matching window is put at the place of the rule when it appears, and a shortcut for an overridden position
+ * puts it at the replacement instead.
+ *
+ * Definitions are ';' separated fields, like {@code process=chrome.exe;title=youtube;place=right_half@2}
+ * or {@code process=windowsterminal.exe;top_left=left_third}, where every field which is not a condition or the place
+ * overrides the position of that name.
+ */
+public final class WindowRule {
+
+    public static final String DEFINITION_PREFIX = "rule."; // shortcuts file keys which define a rule instead of a shortcut
+
+    private final String name;
+    private final String processName; // null matches any process
+    private final String className; // null matches any window class
+    private final String[] titleParts; // null matches any title
+    private final String place; // null if windows are left where they appear
+    private final Map<String, String> overrides;
+
+    private WindowRule(String name, String processName, String className, String[] titleParts, String place, Map<String, String> overrides) {
+        this.name = name;
+        this.processName = processName;
+        this.className = className;
+        this.titleParts = titleParts;
+        this.place = place;
+        this.overrides = Collections.unmodifiableMap(overrides);
+    }
+
+    /**
+     * Parses a rule definition from the shortcuts file
+     */
+    public static WindowRule parse(String name, String definition) {
+
+        String processName = null;
+        String className = null;
+        String[] titleParts = null;
+        String place = null;
+        Map<String, String> overrides = new LinkedHashMap<>();
+
+        for (String field : definition.split(";")) {
+
+            int separator = field.indexOf('=');
+            String key = separator == -1 ? "" : field.substring(0, separator).trim();
+            String value = separator == -1 ? "" : field.substring(separator + 1).trim();
+            if (key.isEmpty() || value.isEmpty())
+                throw new IllegalArgumentException("Invalid rule definition for " + name + ": " + definition);
+
+            switch (key) {
+                case "process" -> processName = value.toLowerCase(Locale.ROOT);
+                case "class" -> className = value.toLowerCase(Locale.ROOT);
+                case "title" -> titleParts = parseTitle(value.toLowerCase(Locale.ROOT));
+                case "place" -> place = value;
+                default -> overrides.put(key, value);
+            }
+        }
+
+        if (processName == null && className == null && titleParts == null)
+            throw new IllegalArgumentException("Rule " + name + " has no condition");
+
+        return new WindowRule(name, processName, className, titleParts, place, overrides);
+    }
+
+    private static String[] parseTitle(String pattern) {
+        String[] parts = Arrays.stream(pattern.split("\\*")).filter(part -> !part.isEmpty()).toArray(String[]::new);
+        return parts.length == 0 ? null : parts;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    String getProcessName() {
+        return processName;
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    String[] getTitleParts() {
+        return titleParts;
+    }
+
+    /**
+     * Position at which a window is put when it appears, optionally with an '@' and the number of a monitor, or null
+     */
+    public String getPlace() {
+        return place;
+    }
+
+    /**
+     * Returns the position which replaces the given one for windows of this rule, or the position itself
+     */
+    public String override(String position) {
+        return overrides.getOrDefault(position, position);
+    }
+
+}
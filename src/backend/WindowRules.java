@@ -0,0 +1,240 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable set of window rules compiled for matching, where the first rule in file order which matches a window wins.
+ * Sets of rules are bitsets over the rule indexes. Process and window class are looked up in hash tables which give
+ * the rules naming them, and the title parts of all rules are found in a single pass over the title by one
+ * Aho-Corasick automaton, so the cost of classifying a window hardly depends on the number of rules.
+ *
+ * Process and class are fixed for the life of a window and only the title changes, so classification is split
+ * into the application candidates, which a caller keeps per window, and the title match against them.
+ */
+public final class WindowRules {
+
+    static final WindowRules EMPTY = compile(Map.of());
+    static final int NO_RULE = -1;
+
+    private static final long[] NONE = new long[0];
+
+    private final WindowRule[] rules;
+    private final int words; // number of longs in a bitset of rules
+    private final Map<String, long[]> byProcess = new HashMap<>();
+    private final Map<String, long[]> byClass = new HashMap<>();
+    private final long[] anyProcess;
+    private final long[] anyClass;
+    private final long[] anyTitle;
+
+    // automaton over the title parts, characters which are in no part share class 0 which always leads back to the root
+    private final int[] asciiClasses = new int[128];
+    private final Map<Character, Integer> otherClasses = new HashMap<>();
+    private int classCount = 1;
+    private int[] transitions; // state * classCount + class -> state, complete, so matching never follows failure links
+    private int[][] outputs; // per state the parts ending there, as rule << 16 | part index
+
+    private WindowRules(WindowRule[] rules) {
+
+        this.rules = rules;
+        this.words = (rules.length + Long.SIZE - 1) / Long.SIZE;
+        anyProcess = new long[words];
+        anyClass = new long[words];
+        anyTitle = new long[words];
+
+        for (int i = 0; i < rules.length; i++) {
+            WindowRule rule = rules[i];
+            set(rule.getProcessName() == null ? anyProcess : byProcess.computeIfAbsent(rule.getProcessName(), key -> new long[words]), i);
+            set(rule.getClassName() == null ? anyClass : byClass.computeIfAbsent(rule.getClassName(), key -> new long[words]), i);
+            if (rule.getTitleParts() == null)
+                set(anyTitle, i);
+        }
+        buildAutomaton();
+    }
+
+    /**
+     * Compiles the rules from the definitions (rule name to definition), invalid definitions are reported and skipped
+     */
+    public static WindowRules compile(Map<String, String> definitions) {
+
+        List<WindowRule> rules = new ArrayList<>();
+        for (Map.Entry<String, String> entry : definitions.entrySet()) {
+            try {
+                rules.add(WindowRule.parse(entry.getKey(), entry.getValue()));
+            } catch (IllegalArgumentException err) {
+                Log.warn(err.getMessage());
+            }
+        }
+        return new WindowRules(rules.toArray(new WindowRule[0]));
+    }
+
+    private void buildAutomaton() {
+
+        for (WindowRule rule : rules)
+            if (rule.getTitleParts() != null)
+                for (String part : rule.getTitleParts())
+                    for (int i = 0; i < part.length(); i++)
+                        if (classOf(part.charAt(i)) == 0)
+                            addClass(part.charAt(i));
+
+        // the trie of all parts, -1 where there is no edge yet
+        int states = 1;
+        transitions = new int[16 * classCount];
+        Arrays.fill(transitions, -1);
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        stateOutputs.add(new ArrayList<>());
+
+        for (int r = 0; r < rules.length; r++) {
+            String[] parts = rules[r].getTitleParts();
+            for (int p = 0; parts != null && p < parts.length; p++) {
+                int state = 0;
+                for (int i = 0; i < parts[p].length(); i++) {
+                    int edge = state * classCount + classOf(parts[p].charAt(i));
+                    if (transitions[edge] == -1) {
+                        if ((states + 1) * classCount > transitions.length) {
+                            int length = transitions.length;
+                            transitions = Arrays.copyOf(transitions, length * 2);
+                            Arrays.fill(transitions, length, transitions.length, -1);
+                        }
+                        transitions[edge] = states++;
+                        stateOutputs.add(new ArrayList<>());
+                    }
+                    state = transitions[edge];
+                }
+                stateOutputs.get(state).add(r << 16 | p);
+            }
+        }
+
+        // breadth first, every missing edge is taken from the failure state, whose edges are complete by then
+        int[] failure = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+
+        for (int c = 0; c < classCount; c++) {
+            int child = transitions[c];
+            if (child <= 0 || c == 0) {
+                transitions[c] = 0;
+            } else {
+                failure[child] = 0;
+                queue[tail++] = child;
+            }
+        }
+
+        while (head < tail) {
+            int state = queue[head++];
+            stateOutputs.get(state).addAll(stateOutputs.get(failure[state]));
+            for (int c = 0; c < classCount; c++) {
+                int edge = state * classCount + c;
+                int child = transitions[edge];
+                int fallback = transitions[failure[state] * classCount + c];
+                if (child == -1) {
+                    transitions[edge] = fallback;
+                } else {
+                    failure[child] = fallback;
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        transitions = Arrays.copyOf(transitions, states * classCount);
+        outputs = new int[states][];
+        for (int s = 0; s < states; s++)
+            outputs[s] = stateOutputs.get(s).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void addClass(char c) {
+        if (c < asciiClasses.length)
+            asciiClasses[c] = classCount++;
+        else
+            otherClasses.put(c, classCount++);
+    }
+
+    private int classOf(char c) {
+        return c < asciiClasses.length ? asciiClasses[c] : otherClasses.getOrDefault(c, 0);
+    }
+
+    /**
+     * Returns the rules whose process and window class conditions the window meets, both given in lower case
+     */
+    long[] getCandidates(String processName, String className) {
+
+        long[] process = byProcess.getOrDefault(processName, NONE);
+        long[] windowClass = byClass.getOrDefault(className, NONE);
+        long[] candidates = new long[words];
+        for (int i = 0; i < words; i++)
+            candidates[i] = (anyProcess[i] | (i < process.length ? process[i] : 0)) & (anyClass[i] | (i < windowClass.length ? windowClass[i] : 0));
+        return candidates;
+    }
+
+    /**
+     * Checks whether the title decides which of the candidates wins, otherwise it does not have to be read
+     */
+    boolean needsTitle(long[] candidates) {
+        // only the first candidate counts, if it matches any title it wins whatever the title is
+        for (int i = 0; i < words; i++)
+            if (candidates[i] != 0)
+                return (Long.lowestOneBit(candidates[i]) & anyTitle[i]) == 0;
+        return false;
+    }
+
+    /**
+     * Returns the index of the first candidate whose title pattern the title meets, or NO_RULE.
+     * The title is run through the automaton once, and a rule advances to its next title part only when that part
+     * starts after the end of the previous one, the earliest end being the best choice for the parts which follow.
+     */
+    int match(long[] candidates, String title) {
+
+        long[] matched = anyTitle.clone();
+
+        if (needsTitle(candidates)) {
+            int[] progress = new int[rules.length];
+            int[] lastEnd = new int[rules.length];
+            Arrays.fill(lastEnd, -1);
+
+            int state = 0;
+            String text = title.toLowerCase(Locale.ROOT);
+            for (int i = 0; i < text.length(); i++) {
+                state = transitions[state * classCount + classOf(text.charAt(i))];
+                for (int output : outputs[state]) {
+                    int r = output >>> 16;
+                    int p = output & 0xFFFF;
+                    String[] parts = rules[r].getTitleParts();
+                    if ((candidates[r >>> 6] & 1L << r) != 0 && progress[r] == p && i - parts[p].length() >= lastEnd[r]) {
+                        lastEnd[r] = i;
+                        if (++progress[r] == parts.length)
+                            set(matched, r);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < words; i++) {
+            long both = candidates[i] & matched[i];
+            if (both != 0)
+                return i * Long.SIZE + Long.numberOfTrailingZeros(both);
+        }
+        return NO_RULE;
+    }
+
+    private static void set(long[] bitset, int index) {
+        bitset[index >>> 6] |= 1L << index;
+    }
+
+    public boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    public WindowRule getRule(int index) {
+        return rules[index];
+    }
+
+}
@@ -0,0 +1,135 @@
+package backend;
+
+/**
+ * Abstraction of the native window system calls used by the window manager.
+ * Windows and monitors are identified by their native handle values, 0 means no handle.
+ */
+public interface WindowSystem {
+
+    /**
+     * Returns the handle of the window which currently has the keyboard focus, or 0 if there is none
+     */
+    long getForegroundWindow();
+
+    /**
+     * Returns the outer bounds of the window
+     */
+    Rect getWindowRect(long window);
+
+    /**
+     * Checks whether the window has a sizing border and can therefore be resized
+     */
+    boolean isResizable(long window);
+
+    /**
+     * Returns the lower case file name of the executable which owns the window, like "notepad.exe",
+     * or an empty string if the process can not be queried
+     */
+    String getProcessName(long window);
+
+    /**
+     * Returns the name of the window class the window was created with
+     */
+    String getClassName(long window);
+
+    /**
+     * Returns the title of the window, an empty string if it has none
+     */
+    String getTitle(long window);
+
+    /**
+     * Moves and resizes the window without activating it
+     */
+    boolean setWindowPosition(long window, int x, int y, int width, int height);
+
+    /**
+     * Moves and resizes the first count windows to their targets in a single transaction, so that the desktop
+     * is redrawn once for all of them. Z-order and activation are left unchanged.
+     */
+    boolean setWindowPositions(long[] windows, Rect[] targets, int count);
+
+    /**
+     * Like setWindowPositions, with the targets given as left, top, width and height of every window one after another,
+     * so that a caller which moves the same windows many times can keep reusing its arrays
+     */
+    boolean setWindowBounds(long[] windows, int[] bounds, int count);
+
+    /**
+     * Returns the visible, not minimized application windows in z-order, topmost first
+     */
+    long[] getTopLevelWindows();
+
+    /**
+     * Checks whether the window is one of the windows getTopLevelWindows would return
+     */
+    boolean isTopLevelWindow(long window);
+
+    /**
+     * Returns every monitor attached to the desktop
+     */
+    Monitor[] getMonitors();
+
+    /**
+     * Returns the handle of the monitor which contains the largest part of the window, or the nearest one
+     */
+    long getMonitorFromWindow(long window);
+
+    /**
+     * Registers a listener which is invoked when monitors are attached, detached or resized,
+     * or when the work area changes (for example when the taskbar is moved)
+     */
+    void setDisplayChangeListener(Runnable listener);
+
+    /**
+     * Adds a listener which is invoked when the foreground window changes, and when a window appears, disappears,
+     * is moved, resized or destroyed. Returns false if the window system can not deliver these events.
+     */
+    boolean addWindowEventListener(WindowEventListener listener);
+
+    /**
+     * Receiver of window events, invoked on the thread which delivers them. Events of windows which are not
+     * top level windows may be delivered too.
+     */
+    interface WindowEventListener {
+
+        default void foregroundChanged(long window) {
+        }
+
+        /**
+         * The window was moved or resized, by anyone, including every step while the user drags it
+         */
+        default void locationChanged(long window) {
+        }
+
+        /**
+         * The user started moving or resizing the window
+         */
+        default void moveStarted(long window) {
+        }
+
+        /**
+         * The user finished moving or resizing the window
+         */
+        default void moveEnded(long window) {
+        }
+
+        /**
+         * The window became visible or was restored from the taskbar
+         */
+        default void windowShown(long window) {
+        }
+
+        /**
+         * The window was hidden or minimized
+         */
+        default void windowHidden(long window) {
+        }
+
+        default void windowDestroyed(long window) {
+        }
+
+        default void titleChanged(long window) {
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package backend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Arrangement of all top level windows, which is saved to a file and restored later, for example after docking
+ * or a restart. A window is recognised by a hash of its identity: process, window class and title. A window whose
+ * title changed meanwhile (a browser showing another page) is matched by process and window class alone.
+ *
+ * The file holds the magic "WMWS", a version byte and the number of windows, followed by 32 bytes per window:
+ * the identity hash, the hash of process and class, and left, top, right and bottom of the window.
+ */
+public final class WorkspaceSnapshot {
+
+    private static final int MAGIC = 0x574D5753; // "WMWS"
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 9;
+    private static final int ENTRY_BYTES = 32;
+
+    private final long[] identities; // hash of process, class and title
+    private final long[] applications; // hash of process and class
+    private final Rect[] rects;
+
+    private WorkspaceSnapshot(long[] identities, long[] applications, Rect[] rects) {
+        this.identities = identities;
+        this.applications = applications;
+        this.rects = rects;
+    }
+
+    /**
+     * Records the identity and bounds of every visible top level window
+     */
+    static WorkspaceSnapshot capture(WindowSystem windowSystem) {
+
+        long[] windows = windowSystem.getTopLevelWindows();
+        long[] identities = new long[windows.length];
+        long[] applications = new long[windows.length];
+        Rect[] rects = new Rect[windows.length];
+
+        for (int i = 0; i < windows.length; i++) {
+            applications[i] = applicationHash(windowSystem, windows[i]);
+            identities[i] = hash(applications[i], windowSystem.getTitle(windows[i]));
+            rects[i] = windowSystem.getWindowRect(windows[i]);
+        }
+        return new WorkspaceSnapshot(identities, applications, rects);
+    }
+
+    /**
+     * Finds the current window for every saved one and writes the pairs to the arrays, which must hold size() elements.
+     * Exact matches are made first, so that a window with an unchanged title is never taken by a look-alike.
+     * Every window is used at most once, windows of the same kind are paired in z-order. Saved windows which would
+     * not be on any of the current monitors are left out. Returns the number of pairs.
+     */
+    int match(WindowSystem windowSystem, MonitorTopology topology, long[] windows, Rect[] targets) {
+
+        long[] current = windowSystem.getTopLevelWindows();
+        Map<Long, ArrayDeque<Long>> byIdentity = new HashMap<>();
+        Map<Long, ArrayDeque<Long>> byApplication = new HashMap<>();
+
+        for (long window : current) {
+            long application = applicationHash(windowSystem, window);
+            byIdentity.computeIfAbsent(hash(application, windowSystem.getTitle(window)), key -> new ArrayDeque<>()).add(window);
+            byApplication.computeIfAbsent(application, key -> new ArrayDeque<>()).add(window);
+        }
+
+        long[] matched = new long[rects.length];
+        Set<Long> taken = new HashSet<>();
+
+        for (int i = 0; i < rects.length; i++)
+            matched[i] = take(byIdentity.get(identities[i]), taken);
+        for (int i = 0; i < rects.length; i++)
+            if (matched[i] == 0)
+                matched[i] = take(byApplication.get(applications[i]), taken);
+
+        int count = 0;
+        for (int i = 0; i < rects.length; i++) {
+            if (matched[i] != 0 && isOnScreen(rects[i], topology)) {
+                windows[count] = matched[i];
+                targets[count] = rects[i];
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long take(ArrayDeque<Long> candidates, Set<Long> taken) {
+
+        if (candidates == null)
+            return 0;
+
+        Long window;
+        while ((window = candidates.poll()) != null)
+            if (taken.add(window))
+                return window;
+        return 0;
+    }
+
+    /**
+     * A window counts as on screen if its center is on one of the monitors
+     */
+    private static boolean isOnScreen(Rect rect, MonitorTopology topology) {
+
+        int x = (rect.left + rect.right) / 2;
+        int y = (rect.top + rect.bottom) / 2;
+        for (int i = 0; i < topology.size(); i++) {
+            Rect bounds = topology.getMonitor(i).getBounds();
+            if (x >= bounds.left && x < bounds.right && y >= bounds.top && y < bounds.bottom)
+                return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return rects.length;
+    }
+
+    /**
+     * Writes the snapshot to a temporary file which then atomically replaces the given file
+     */
+    void write(Path file) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + rects.length * ENTRY_BYTES);
+        buffer.putInt(MAGIC).put(VERSION).putInt(rects.length);
+        for (int i = 0; i < rects.length; i++) {
+            buffer.putLong(identities[i]).putLong(applications[i]);
+            buffer.putInt(rects[i].left).putInt(rects[i].top).putInt(rects[i].right).putInt(rects[i].bottom);
+        }
+        buffer.flip();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true); // the content must be on disk before the rename makes it visible
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a snapshot written by write
+     */
+    static WorkspaceSnapshot read(Path file) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.get() != VERSION)
+            throw new IOException("Not a workspace file: " + file);
+
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() != (long) count * ENTRY_BYTES)
+            throw new IOException("Truncated workspace file: " + file);
+
+        long[] identities = new long[count];
+        long[] applications = new long[count];
+        Rect[] rects = new Rect[count];
+        for (int i = 0; i < count; i++) {
+            identities[i] = buffer.getLong();
+            applications[i] = buffer.getLong();
+            rects[i] = new Rect(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        }
+        return new WorkspaceSnapshot(identities, applications, rects);
+    }
+
+    private static long applicationHash(WindowSystem windowSystem, long window) {
+        return hash(hash(0, windowSystem.getProcessName(window)), windowSystem.getClassName(window));
+    }
+
+    /**
+     * 64 bit FNV-1a over the characters of the text, continuing from the given hash, so that identities which differ
+     * in a single field do not collide in practice and the file does not need to hold the names themselves
+     */
+    static long hash(long seed, String text) {
+
+        long h = seed ^ 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++)
+            h = (h ^ text.charAt(i)) * 0x100000001B3L;
+        return (h ^ text.length()) * 0x100000001B3L; // the length separates "ab" + "c" from "a" + "bc"
+    }
+
+}
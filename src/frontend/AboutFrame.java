@@ -9,8 +9,7 @@ public class AboutFrame extends JFrame {
 
         this.setTitle("About");
 
-        Image icon = Toolkit.getDefaultToolkit().getImage("appicon.png");
-        this.setIconImage(icon);
+        this.setIconImage(TrayMenu.getApplicationIcon());
 
         this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         this.setSize(650, 245);
@@ -1,6 +1,7 @@
 package frontend;
 
-import backend.WindowManager;
+import backend.BindingAnalyzer;
+import backend.KeyCodeConverter;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
@@ -8,17 +9,17 @@ import java.util.*;
 import java.util.List;
 import java.util.stream.Collectors;
 import static backend.ShortcutManager.*;
-import static backend.ShortcutManager.savedShortcuts;
 
 public class ShortcutFrame extends JFrame {
 
-    public static String selectedShortcutPosition;
-    private static JPanel shortcutPanel;
-    private static JLabel lbTopLeftShortcut, lbTopRightShortcut, lbBottomLeftShortcut, lbBottomRightShortcut,
+    private String selectedShortcutPosition;
+    private JPanel shortcutPanel;
+    private JLabel lbTopLeftShortcut, lbTopRightShortcut, lbBottomLeftShortcut, lbBottomRightShortcut,
             lbTopShortcut, lbMiddleShortcut, lbBottomShortcut;
-    private static JButton submitButton;
+    private JButton submitButton;
     private boolean isDuplicateWarningShown = false;
-    private static TrayIcon trayIcon;
+    private final Map<String, List<Integer>> draftShortcuts = getBindings().createDraft(); // edited shortcuts, active only after submit
+    private final BindingAnalyzer draftIndex = new BindingAnalyzer(draftShortcuts, getBindings().getSequences()); // kept in step with the draft
 
     /**
      * GUI
@@ -27,34 +28,13 @@ public class ShortcutFrame extends JFrame {
 
         this.setTitle("Shortcut configurator");
 
-        Image icon = Toolkit.getDefaultToolkit().getImage("appicon.png");
-        this.setIconImage(icon);
+        this.setIconImage(TrayMenu.getApplicationIcon());
 
         this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         this.setLayout(new FlowLayout(FlowLayout.LEFT, 10, 10));
         this.setSize(new Dimension(457, 298));
         this.setResizable(false);
         this.setLocationRelativeTo(null);
-        this.addWindowListener(new WindowAdapter() {
-            @Override
-            public void windowClosing(WindowEvent e) {
-
-                /*
-                 * Resets the labels to display only the saved shortcuts when the window is reopened.
-                 * This ensures that any unsaved shortcut changes made by the user are not displayed
-                 * the next time the window is opened.
-                 */
-                createOrUpdateLabel("top_left", lbTopLeftShortcut, "Top left → ");
-                createOrUpdateLabel("top_right", lbTopRightShortcut, "Top right → ");
-                createOrUpdateLabel("bottom_left", lbBottomLeftShortcut, "Bottom left → ");
-                createOrUpdateLabel("bottom_right", lbBottomRightShortcut, "Bottom right → ");
-                createOrUpdateLabel("top", lbTopShortcut, "Top → ");
-                createOrUpdateLabel("middle", lbMiddleShortcut, "Middle → ");
-                createOrUpdateLabel("bottom", lbBottomShortcut, "Bottom → ");
-            }
-        });
-
-        loadingTrayIcon(); // initializes and adds the application tray icon to the system tray
 
         // additional text to provide context of the window
         JLabel lbAddText = new JLabel("<html>" +
@@ -108,8 +88,10 @@ public class ShortcutFrame extends JFrame {
             @Override
             public void keyPressed(KeyEvent e) {
 
-                if (selectedShortcutPosition != null) {
-                    pressedKeys.add(e.getKeyCode()); // add pressed key into the set
+                int jnaKeyCode = KeyCodeConverter.awtToJNA(e.getKeyCode()); // shortcuts are saved as JNA key codes
+
+                if (selectedShortcutPosition != null && jnaKeyCode != -1) {
+                    pressedKeys.add(jnaKeyCode); // add pressed key into the set
                     isDuplicateWarningShown = false; // reset flag when starting a new shortcut input
                 }
             }
@@ -122,7 +104,7 @@ public class ShortcutFrame extends JFrame {
                     // converting set to list, so it can be used by other method //todo maybe update other methods to accept set?
                     List<Integer> shortcut = new ArrayList<>(pressedKeys);
 
-                    if (isShortcutAlreadyUsed(shortcut)) {
+                    if (isShortcutAlreadyUsed(draftIndex, selectedShortcutPosition, shortcut)) {
                         // edge case where the error dialog is being triggered repeatedly due to multiple keyReleased events firing in quick succession
                         if (!isDuplicateWarningShown) {
                             JOptionPane.showMessageDialog(null, "This shortcut is already in use. Please choose a different one.",
@@ -137,7 +119,8 @@ public class ShortcutFrame extends JFrame {
                         return;
                     }
 
-                    savedShortcuts.put(selectedShortcutPosition, shortcut); // saves a shortcut
+                    draftShortcuts.put(selectedShortcutPosition, shortcut); // saves a shortcut into the draft
+                    draftIndex.put(selectedShortcutPosition, shortcut);
                     updateShortcutLabel(selectedShortcutPosition, shortcut); // updates label text
 
                     // clear set and reset selected position
@@ -220,8 +203,7 @@ public class ShortcutFrame extends JFrame {
         btnChangeBottomLeftShortcut.addActionListener(e -> selectedShortcutPosition("bottom_left"));
         btnChangeBottomRightShortcut.addActionListener(e -> selectedShortcutPosition("bottom_right"));
         submitButton.addActionListener(e -> {
-            saveShortcuts(); // persist the saved shortcuts to file
-            loadShortcuts(); // reload saved shortcuts to update the UI if necessary
+            saveShortcuts(draftShortcuts); // persist the draft to file and make it the active shortcuts
             this.dispose(); // close the configuration window
         });
     }
@@ -286,8 +268,7 @@ public class ShortcutFrame extends JFrame {
         btnChangeMiddleShortcut.addActionListener(e -> selectedShortcutPosition("middle"));
         btnChangeBottomShortcut.addActionListener(e -> selectedShortcutPosition("bottom"));
         submitButton.addActionListener(e -> {
-            saveShortcuts(); // persist the saved shortcuts to file
-            loadShortcuts(); // reload saved shortcuts to update the UI if necessary
+            saveShortcuts(draftShortcuts); // persist the draft to file and make it the active shortcuts
             this.dispose(); // close the configuration window
         });
 
@@ -311,7 +292,7 @@ public class ShortcutFrame extends JFrame {
     private void updateShortcutLabel(String position, List<Integer> keyCodes) {
 
         String chosenShortcut = keyCodes.stream()
-                .map(KeyEvent::getKeyText)
+                .map(KeyCodeConverter::getKeyText)
                 .collect(Collectors.joining(" + "));
 
         switch (position) {
@@ -347,80 +328,20 @@ public class ShortcutFrame extends JFrame {
      */
     private JLabel createOrUpdateLabel(String position, JLabel label, String prefix) {
 
-        List<Integer> currentShortcutKeyCodes = savedShortcuts.getOrDefault(position, Collections.emptyList());
+        List<Integer> currentShortcutKeyCodes = draftShortcuts.getOrDefault(position, Collections.emptyList());
 
         String shortcut = currentShortcutKeyCodes.isEmpty() ?
                 "Not set" : currentShortcutKeyCodes.stream()
-                .map(KeyEvent::getKeyText)
+                .map(KeyCodeConverter::getKeyText)
                 .collect(Collectors.joining(" + "));
 
         String labelText = prefix + shortcut;
 
-        return label == null ? new JLabel(labelText) : label;
-    }
-
-    /**
-     * Initializes and adds the application tray icon to the system tray
-     */
-    public void loadingTrayIcon() {
-
-        PopupMenu popup = getPopupMenu();
-        this.add(popup);
+        if (label == null)
+            return new JLabel(labelText);
 
-        // loads an image for the tray icon
-        Image trayIconImage = Toolkit.getDefaultToolkit().getImage("appicon.png");
-
-        // configures the tray icon
-        trayIcon = new TrayIcon(trayIconImage, "Windows manager", popup);
-        trayIcon.setImageAutoSize(true);
-
-        // adds the tray icon to the system tray
-        try {
-            SystemTray tray = SystemTray.getSystemTray();
-            tray.add(trayIcon);
-        } catch (AWTException err) {
-            System.err.println("TrayIcon could not be added.");
-        }
-    }
-
-    /**
-     * Creates and configures a popup menu for the system tray icon
-     */
-    private PopupMenu getPopupMenu() {
-        PopupMenu popup = new PopupMenu();
-
-        // displays the home window and brings it to the front
-        MenuItem openWindowsManager = new MenuItem("Show");
-        openWindowsManager.addActionListener(e -> {
-            SwingUtilities.invokeLater(() -> {
-                this.setVisible(true);
-                this.toFront();
-            });
-        });
-        popup.add(openWindowsManager);
-
-        // opens a dialog with information about the application
-        MenuItem aboutWindowsManager = new MenuItem("About");
-        aboutWindowsManager.addActionListener(e -> new AboutFrame());
-        popup.add(aboutWindowsManager);
-
-        // pauses the application
-        CheckboxMenuItem pauseWindowsManager = new CheckboxMenuItem("Pause");
-        pauseWindowsManager.addItemListener(e -> {
-            boolean isSelected = pauseWindowsManager.getState();
-            WindowManager.setPaused(isSelected);
-        });
-        popup.add(pauseWindowsManager);
-
-        // removes the tray icon from the system tray and exits the application
-        MenuItem exitWindowsManager = new MenuItem("Exit");
-        exitWindowsManager.addActionListener(e -> {
-            SystemTray.getSystemTray().remove(trayIcon);
-            System.exit(0);
-        });
-        popup.addSeparator();
-        popup.add(exitWindowsManager);
-        return popup;
+        label.setText(labelText);
+        return label;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package frontend;
+
+import backend.MemoryGovernor;
+import backend.ShortcutManager;
+import backend.WindowManager;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+/**
+ * The system tray icon and its menu, which is all of the user interface created at startup.
+ * Only AWT classes are needed for it, the Swing windows and their classes are loaded when they are first opened.
+ */
+public class TrayMenu {
+
+    private static Image applicationIcon;
+    private static ShortcutFrame shortcutFrame; // exists only while it is open, only touched on the event dispatch thread
+    private static TrayIcon trayIcon;
+
+    /**
+     * Adds the tray icon on the event dispatch thread, so that the caller does not wait for the AWT toolkit
+     */
+    public static void install() {
+        EventQueue.invokeLater(TrayMenu::addTrayIcon);
+    }
+
+    /**
+     * Returns the application icon, which is loaded only once and shared by the tray and all windows
+     */
+    public static synchronized Image getApplicationIcon() {
+
+        if (applicationIcon == null)
+            applicationIcon = Toolkit.getDefaultToolkit().getImage("appicon.png");
+        return applicationIcon;
+    }
+
+    /**
+     * Initializes and adds the application tray icon to the system tray
+     */
+    private static void addTrayIcon() {
+
+        if (!SystemTray.isSupported()) {
+            System.err.println("System tray is not supported, shortcuts can only be changed in the shortcuts file.");
+            return;
+        }
+
+        // configures the tray icon
+        trayIcon = new TrayIcon(getApplicationIcon(), "Windows manager", getPopupMenu());
+        trayIcon.setImageAutoSize(true);
+
+        // adds the tray icon to the system tray
+        try {
+            SystemTray.getSystemTray().add(trayIcon);
+        } catch (AWTException err) {
+            System.err.println("TrayIcon could not be added.");
+        }
+    }
+
+    /**
+     * Creates and configures a popup menu for the system tray icon
+     */
+    private static PopupMenu getPopupMenu() {
+        PopupMenu popup = new PopupMenu();
+
+        // displays the home window and brings it to the front, the window is built whenever it is opened
+        MenuItem openWindowsManager = new MenuItem("Show");
+        openWindowsManager.addActionListener(e -> showShortcutFrame());
+        popup.add(openWindowsManager);
+
+        // opens a dialog with information about the application
+        MenuItem aboutWindowsManager = new MenuItem("About");
+        aboutWindowsManager.addActionListener(e -> new AboutFrame());
+        popup.add(aboutWindowsManager);
+
+        // shows the latency of every stage between a key press and the window being moved
+        MenuItem statisticsWindowsManager = new MenuItem("Statistics");
+        statisticsWindowsManager.addActionListener(e -> showReport(WindowManager.getLatencyMetrics().getReport(), "Statistics"));
+        popup.add(statisticsWindowsManager);
+
+        // shows how much memory the application uses
+        MenuItem memoryWindowsManager = new MenuItem("Memory");
+        memoryWindowsManager.addActionListener(e -> showReport(MemoryGovernor.getReport(), "Memory"));
+        popup.add(memoryWindowsManager);
+
+        // lists shortcuts which can not fire or fire in place of another one
+        MenuItem conflictsWindowsManager = new MenuItem("Conflicts");
+        conflictsWindowsManager.addActionListener(e -> showReport(ShortcutManager.getConflictReport(), "Conflicts"));
+        popup.add(conflictsWindowsManager);
+
+        // pauses the application
+        CheckboxMenuItem pauseWindowsManager = new CheckboxMenuItem("Pause");
+        pauseWindowsManager.addItemListener(e -> WindowManager.setPaused(pauseWindowsManager.getState()));
+        popup.add(pauseWindowsManager);
+
+        // removes the tray icon from the system tray and exits the application
+        MenuItem exitWindowsManager = new MenuItem("Exit");
+        exitWindowsManager.addActionListener(e -> {
+            SystemTray.getSystemTray().remove(trayIcon);
+            System.exit(0);
+        });
+        popup.addSeparator();
+        popup.add(exitWindowsManager);
+        return popup;
+    }
+
+    /**
+     * Builds the configurator window, or brings it to the front if it is open. Closing it releases the window
+     * with all of its components, so nothing of it stays in memory while only the tray icon is left.
+     */
+    private static void showShortcutFrame() {
+
+        if (shortcutFrame == null) {
+            shortcutFrame = new ShortcutFrame();
+            shortcutFrame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    shortcutFrame = null;
+                    MemoryGovernor.setWindowOpen(false);
+                }
+            });
+            MemoryGovernor.setWindowOpen(true);
+        }
+        shortcutFrame.setVisible(true);
+        shortcutFrame.toFront();
+    }
+
+    /**
+     * Shows a report in a dialog, in a monospaced font so that its columns line up
+     */
+    private static void showReport(String text, String title) {
+        JTextArea report = new JTextArea(text);
+        report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        report.setEditable(false);
+        JOptionPane.showMessageDialog(null, report, title, JOptionPane.INFORMATION_MESSAGE);
+    }
+
+}
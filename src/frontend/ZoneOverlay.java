@@ -0,0 +1,175 @@
+package frontend;
+
+import backend.Monitor;
+import backend.Rect;
+import backend.SnapOverlay;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Translucent window over the work area of a monitor, which shows the drop zones while a window is dragged.
+ * The mouse hook only stores what is to be shown. A timer on the event dispatch thread, ticking once per refresh
+ * of the monitor, repaints the window when that changed, so it is drawn at most once per frame however often the mouse reports.
+ */
+public class ZoneOverlay implements SnapOverlay {
+
+    private static final Color ZONE_COLOR = new Color(255, 255, 255, 160);
+    private static final Color HIGHLIGHT_COLOR = new Color(51, 153, 255, 110);
+    private static final int GAP = 4; // pixels between the outline of a zone and its neighbours
+
+    // what is to be shown, written by the mouse hook thread
+    private volatile Monitor monitor;
+    private volatile Rect[] zones;
+    private volatile int highlighted;
+    private volatile boolean visible;
+
+    // what is shown, only touched on the event dispatch thread
+    private JWindow window;
+    private Timer timer;
+    private Monitor shownMonitor;
+    private Rect[] shownZones;
+    private int shownHighlighted;
+    private Rectangle[] zoneBounds = new Rectangle[0]; // zones in the coordinates of the window
+
+    @Override
+    public void showZones(Monitor monitor, Rect[] zones, int highlighted) {
+
+        this.monitor = monitor;
+        this.zones = zones;
+        this.highlighted = highlighted;
+        if (!visible) {
+            visible = true;
+            EventQueue.invokeLater(this::startTimer);
+        }
+    }
+
+    /**
+     * The window is hidden on the next tick of the timer, which then stops
+     */
+    @Override
+    public void hideZones() {
+        visible = false;
+    }
+
+    private void startTimer() {
+
+        if (timer == null)
+            timer = new Timer(getFramePeriodMillis(monitor), e -> refresh());
+        if (!timer.isRunning()) {
+            refresh();
+            timer.start();
+        }
+    }
+
+    /**
+     * Brings the window up to date with what is to be shown, repainting it only if that changed since the last tick
+     */
+    private void refresh() {
+
+        if (!visible) {
+            if (window != null)
+                window.setVisible(false);
+            shownMonitor = null;
+            timer.stop();
+            return;
+        }
+
+        Monitor currentMonitor = monitor;
+        Rect[] currentZones = zones;
+        int currentHighlighted = highlighted;
+
+        if (window == null)
+            window = createWindow();
+
+        if (currentMonitor != shownMonitor || currentZones != shownZones) {
+            layOut(currentMonitor, currentZones);
+            timer.setDelay(getFramePeriodMillis(currentMonitor));
+            timer.setInitialDelay(getFramePeriodMillis(currentMonitor));
+        } else if (currentHighlighted == shownHighlighted && window.isVisible()) {
+            return;
+        }
+
+        shownHighlighted = currentHighlighted;
+        window.repaint();
+        if (!window.isVisible())
+            window.setVisible(true);
+    }
+
+    private static int getFramePeriodMillis(Monitor monitor) {
+        return Math.max(1, 1000 / Math.max(1, monitor.getRefreshRate()));
+    }
+
+    private JWindow createWindow() {
+
+        JWindow overlay = new JWindow();
+        overlay.setAlwaysOnTop(true);
+        overlay.setFocusableWindowState(false); // the dragged window keeps the focus
+        overlay.setBackground(new Color(0, 0, 0, 0));
+        overlay.setContentPane(new JComponent() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                paintZones((Graphics2D) g);
+            }
+        });
+        return overlay;
+    }
+
+    /**
+     * Places the window over the work area of the monitor and converts the zones into its coordinates
+     */
+    private void layOut(Monitor monitor, Rect[] zones) {
+
+        Rectangle area = toScreen(monitor, monitor.getWorkArea());
+        window.setBounds(area);
+
+        zoneBounds = new Rectangle[zones.length];
+        for (int i = 0; i < zones.length; i++) {
+            zoneBounds[i] = toScreen(monitor, zones[i]);
+            zoneBounds[i].translate(-area.x, -area.y);
+        }
+        shownMonitor = monitor;
+        shownZones = zones;
+    }
+
+    /**
+     * Outlines every zone and fills the one the window would be dropped into
+     */
+    private void paintZones(Graphics2D g) {
+
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setStroke(new BasicStroke(2));
+
+        for (int i = 0; i < zoneBounds.length; i++) {
+            Rectangle zone = zoneBounds[i];
+            if (i == shownHighlighted) {
+                g.setColor(HIGHLIGHT_COLOR);
+                g.fillRoundRect(zone.x + GAP, zone.y + GAP, zone.width - 2 * GAP, zone.height - 2 * GAP, 12, 12);
+            }
+            g.setColor(ZONE_COLOR);
+            g.drawRoundRect(zone.x + GAP, zone.y + GAP, zone.width - 2 * GAP, zone.height - 2 * GAP, 12, 12);
+        }
+    }
+
+    /**
+     * Converts physical pixels of the monitor into the scaled coordinates of AWT. On Windows the screen of a monitor
+     * starts where the monitor does in physical pixels, and its extent is divided by the scale of the monitor.
+     */
+    private static Rectangle toScreen(Monitor monitor, Rect rect) {
+
+        Rect bounds = monitor.getBounds();
+        double scale = 1;
+        for (GraphicsDevice device : GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices()) {
+            GraphicsConfiguration configuration = device.getDefaultConfiguration();
+            if (configuration.getBounds().x == bounds.left && configuration.getBounds().y == bounds.top) {
+                AffineTransform transform = configuration.getDefaultTransform();
+                scale = transform.getScaleX();
+            }
+        }
+
+        return new Rectangle(bounds.left + (int) Math.round((rect.left - bounds.left) / scale),
+                bounds.top + (int) Math.round((rect.top - bounds.top) / scale),
+                (int) Math.round(rect.width() / scale), (int) Math.round(rect.height() / scale));
+    }
+
+}
@@ -0,0 +1,149 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The configurator edits its draft and submits it while the hook thread matches key presses against the active bindings.
+ * Every submitted draft assigns one generation to all positions, so a reader which sees positions of two generations,
+ * a trie which disagrees with the shortcuts, a generation older than one seen before or one which was not submitted yet
+ * has seen a torn or lost update.
+ */
+class BindingsStressTest {
+
+    private static final int POSITIONS = 8;
+    private static final int MAX_GENERATIONS = 2_600; // as many as the chords can spell
+    private static final long DURATION_NANOS = 1_000_000_000L;
+    private static final int READERS = 2;
+    private static final long MIN_LOOKUPS_PER_SECOND = 100_000;
+
+    @AfterEach
+    void clearBindings() {
+        ShortcutManager.setShortcuts(Map.of());
+    }
+
+    @Test
+    void submitsAreNeitherTornNorLostWhileKeysAreMatched() throws InterruptedException {
+
+        ShortcutManager.setShortcuts(shortcutsOf(0));
+        AtomicInteger announced = new AtomicInteger(); // the generation being submitted, raised before it becomes visible
+        AtomicBoolean finished = new AtomicBoolean(); // set once the last generation was submitted
+        AtomicLong lookups = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+
+        for (int r = 0; r < READERS; r++) {
+            Thread reader = new Thread(() -> {
+                int seen = 0;
+                long count = 0;
+                long[] chord = new long[ChordIndex.WORDS];
+                try {
+                    while (!(finished.get() && seen == announced.get()) && failure.get() == null) {
+                        Bindings bindings = ShortcutManager.getBindings();
+                        int generation = generationOf(bindings.getShortcuts().get(position(0)));
+                        assertTrue(generation >= seen, "generation went back from " + seen + " to " + generation);
+                        assertTrue(generation <= announced.get(), "generation " + generation + " was seen before it was submitted");
+                        seen = generation;
+
+                        int index = (int) (count % POSITIONS);
+                        for (int i = 0; i < POSITIONS; i++)
+                            assertEquals(chordOf(i, generation), bindings.getShortcuts().get(position(i)));
+
+                        // the trie of the same snapshot matches the chord of the same generation, and nothing of the generation before
+                        fill(chord, chordOf(index, generation));
+                        assertEquals(position(index), bindings.getTrie().getPosition(bindings.getTrie().next(SequenceTrie.ROOT, chord)));
+                        if (generation > 0) {
+                            fill(chord, chordOf(index, generation - 1));
+                            assertEquals(SequenceTrie.NO_STATE, bindings.getTrie().next(SequenceTrie.ROOT, chord));
+                        }
+                        count++;
+                    }
+                } catch (Throwable err) {
+                    failure.compareAndSet(null, err);
+                }
+                lookups.addAndGet(count);
+            });
+            readers.add(reader);
+        }
+
+        Thread editor = new Thread(() -> {
+            try {
+                Map<String, List<Integer>> draft = ShortcutManager.getBindings().createDraft();
+                long deadline = System.nanoTime() + DURATION_NANOS;
+                for (int generation = 1; generation < MAX_GENERATIONS && System.nanoTime() < deadline && failure.get() == null; generation++) {
+                    // the draft is edited in place, one key at a time, as the configurator records it
+                    for (int i = 0; i < POSITIONS; i++) {
+                        List<Integer> keys = draft.get(position(i));
+                        List<Integer> next = chordOf(i, generation);
+                        for (int k = 0; k < keys.size(); k++)
+                            keys.set(k, next.get(k));
+                    }
+                    announced.set(generation);
+                    ShortcutManager.setShortcuts(draft);
+                    Thread.yield(); // lets the readers run between submits on a single core as well
+                }
+            } catch (Throwable err) {
+                failure.compareAndSet(null, err);
+            }
+            finished.set(true);
+        });
+
+        long start = System.nanoTime();
+        readers.forEach(Thread::start);
+        editor.start();
+        editor.join();
+        for (Thread reader : readers)
+            reader.join();
+        long elapsed = System.nanoTime() - start;
+
+        assertNull(failure.get(), () -> "reader or editor failed: " + failure.get());
+        assertTrue(announced.get() > 1, "nothing was submitted");
+        assertEquals(shortcutsOf(announced.get()), ShortcutManager.getBindings().getShortcuts());
+        long perSecond = lookups.get() * 1_000_000_000L / elapsed;
+        assertTrue(perSecond >= MIN_LOOKUPS_PER_SECOND, "only " + perSecond + " lookups per second");
+    }
+
+    private static String position(int index) {
+        return "stress_" + index;
+    }
+
+    /**
+     * F1 to F8 for the position, then a letter, a digit and a numpad digit which together spell the generation
+     */
+    private static List<Integer> chordOf(int index, int generation) {
+        return List.of(0x70 + index, 65 + generation % 26, 48 + generation / 26 % 10, 0x60 + generation / 260 % 10);
+    }
+
+    private static int generationOf(List<Integer> chord) {
+        return (chord.get(1) - 65) + (chord.get(2) - 48) * 26 + (chord.get(3) - 0x60) * 260;
+    }
+
+    private static Map<String, List<Integer>> shortcutsOf(int generation) {
+
+        Map<String, List<Integer>> shortcuts = new LinkedHashMap<>();
+        for (int i = 0; i < POSITIONS; i++)
+            shortcuts.put(position(i), chordOf(i, generation));
+        return shortcuts;
+    }
+
+    private static void fill(long[] chord, List<Integer> keys) {
+
+        Arrays.fill(chord, 0);
+        for (int key : keys)
+            ChordIndex.set(chord, key);
+    }
+
+}
@@ -0,0 +1,137 @@
+package backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ControlServerTest {
+
+    private static final long TIMEOUT_NANOS = 5_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private final SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(1, 1920, 1080, 40));
+    private final long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+    private final long second = windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+    private ControlServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new ControlServer(directory.resolve("control.sock"), new WindowManager(windowSystem));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws InterruptedException {
+        server.stop();
+    }
+
+    @Test
+    void answersPipelinedCommandsInOrder() throws Exception {
+
+        String answers = session("ping\nlist\nbogus\nmove\nmove top_left 0xzz\nmove nowhere\n\npositions\nping\nquit\nping\n");
+
+        StringBuilder expected = new StringBuilder("pong\n")
+                .append("window 0x").append(Long.toHexString(first)).append(" 100 100 400 400\n")
+                .append("window 0x").append(Long.toHexString(second)).append(" 300 300 400 400\n")
+                .append("end\n")
+                .append("err unknown command bogus\n")
+                .append("err usage: move <position> [window]\n")
+                .append("err invalid window handle\n")
+                .append("err unknown position nowhere\n");
+        Layout layout = ShortcutManager.getBindings().getLayout();
+        for (int i = 0; i < layout.size(); i++)
+            expected.append("position ").append(layout.getCell(i).getName()).append('\n');
+        expected.append("position arrange\nposition workspace_save\nposition workspace_restore\nposition tile\nend\n")
+                .append("pong\n"); // nothing after quit is answered
+        assertEquals(expected.toString(), answers);
+    }
+
+    @Test
+    void movesTheWindowsOfPipelinedCommands() throws Exception {
+
+        String answers = session("move top_left\nmove bottom_right 0x" + Long.toHexString(second) + "\nquit\n");
+        assertEquals("ok\nok\n", answers);
+        awaitRect(first, new Rect(0, 0, 960, 520));
+        awaitRect(second, new Rect(960, 520, 1920, 1040));
+
+        answers = session("apply 0x" + Long.toHexString(first) + "=top " + second + "=bottom\nquit\n");
+        assertEquals("ok 2\n", answers);
+        awaitRect(first, new Rect(0, 0, 1920, 346));
+        awaitRect(second, new Rect(0, 693, 1920, 1040));
+    }
+
+    @Test
+    void keepsTheOrderOfManyCommandsSplitAnywhere() throws Exception {
+
+        // unknown commands are answered with their name, which shows the order of the answers
+        StringBuilder commands = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            commands.append("command").append(i).append("\nping\n");
+            expected.append("err unknown command command").append(i).append("\npong\n");
+        }
+        commands.append("quit\n");
+
+        assertEquals(expected.toString(), session(commands.toString()));
+    }
+
+    @Test
+    void closesTheConnectionOnATooLongCommand() throws Exception {
+        assertEquals("err command too long\n", session("ping ".repeat(20_000)));
+    }
+
+    /**
+     * Sends the commands in pieces of odd sizes which split lines anywhere, while the answers are read until the server closes
+     */
+    private String session(String commands) throws Exception {
+
+        try (SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            client.connect(UnixDomainSocketAddress.of(directory.resolve("control.sock")));
+
+            Thread writer = new Thread(() -> {
+                byte[] bytes = commands.getBytes(StandardCharsets.UTF_8);
+                try {
+                    for (int offset = 0, piece = 1; offset < bytes.length; offset += piece, piece = piece * 7 % 1013 + 1) {
+                        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, Math.min(piece, bytes.length - offset));
+                        while (buffer.hasRemaining())
+                            client.write(buffer);
+                    }
+                } catch (IOException err) {
+                    // the server closes without reading the rest after quit or a command which is too long
+                }
+            });
+            writer.start();
+
+            ByteArrayOutputStream answers = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (client.read(buffer) != -1) {
+                answers.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            writer.join();
+            return answers.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private void awaitRect(long window, Rect rect) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (!windowSystem.getWindowRect(window).equals(rect) && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertEquals(rect, windowSystem.getWindowRect(window));
+    }
+
+}
@@ -0,0 +1,180 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ForegroundTrackerTest {
+
+    private static final Monitor[] MONITORS = SimulatedWindowSystem.sideBySideMonitors(2, 1920, 1080, 40);
+
+    @Test
+    void followsTheForegroundWindowWithoutAskingTheWindowSystem() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS);
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long second = windowSystem.addWindow(new Rect(2000, 100, 2400, 500), false);
+        ForegroundTracker tracker = new ForegroundTracker(windowSystem);
+        tracker.start();
+
+        assertRecord(first, new Rect(100, 100, 500, 500), 1, true, tracker.get());
+
+        windowSystem.setForegroundWindow(second);
+        long calls = windowSystem.getTotalCallCount();
+        for (int i = 0; i < 1000; i++)
+            tracker.get();
+
+        // the window, its bounds, its monitor and whether it can be resized are captured once, when the focus changes
+        assertRecord(second, new Rect(2000, 100, 2400, 500), 2, false, tracker.get());
+        assertEquals(calls, windowSystem.getTotalCallCount());
+    }
+
+    @Test
+    void followsTheForegroundWindowAcrossMonitors() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS);
+        long window = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        ForegroundTracker tracker = new ForegroundTracker(windowSystem);
+        tracker.start();
+
+        windowSystem.setWindowRect(window, new Rect(2100, 200, 2500, 600));
+
+        assertRecord(window, new Rect(2100, 200, 2500, 600), 2, true, tracker.get());
+    }
+
+    @Test
+    void ignoresEventsOfOtherWindows() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS);
+        long foreground = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long other = windowSystem.addWindow(new Rect(600, 100, 900, 500), true);
+        ForegroundTracker tracker = new ForegroundTracker(windowSystem);
+        tracker.start();
+        ForegroundWindow record = tracker.get();
+
+        windowSystem.setWindowRect(other, new Rect(2100, 200, 2500, 600));
+        windowSystem.removeWindow(other);
+
+        assertSame(record, tracker.get());
+        assertEquals(foreground, tracker.get().getWindow());
+    }
+
+    @Test
+    void destroyedForegroundWindowLeavesNoWindow() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS);
+        long window = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        ForegroundTracker tracker = new ForegroundTracker(windowSystem);
+        tracker.start();
+
+        windowSystem.removeWindow(window);
+
+        assertSame(ForegroundWindow.NONE, tracker.get());
+    }
+
+    @Test
+    void takesOverAppliedBoundsBeforeTheirEventArrives() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS);
+        long window = windowSystem.addWindow(new Rect(100, 100, 500, 500), false);
+        ForegroundTracker tracker = new ForegroundTracker(windowSystem);
+        tracker.start();
+
+        tracker.moved(window, new Rect(1920, 0, 2880, 520), 2);
+        assertRecord(window, new Rect(1920, 0, 2880, 520), 2, false, tracker.get());
+
+        // bounds applied to another window are not taken over
+        tracker.moved(window + 1, new Rect(0, 0, 10, 10), 1);
+        assertRecord(window, new Rect(1920, 0, 2880, 520), 2, false, tracker.get());
+    }
+
+    @Test
+    void capturesTheMonitorAgainWhenTheDisplayChanges() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS);
+        long window = windowSystem.addWindow(new Rect(2100, 200, 2500, 600), true);
+        ForegroundTracker tracker = new ForegroundTracker(windowSystem);
+        tracker.start();
+        assertEquals(2, tracker.get().getMonitor());
+
+        // the second monitor is detached, the window is now nearest to the remaining one
+        windowSystem.setMonitors(MONITORS[0]);
+        tracker.displayChanged();
+
+        assertEquals(1, tracker.get().getMonitor());
+    }
+
+    @Test
+    void asksTheWindowSystemWhenItDeliversNoEvents() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS) {
+            @Override
+            public boolean addWindowEventListener(WindowEventListener listener) {
+                return false;
+            }
+        };
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long second = windowSystem.addWindow(new Rect(2000, 100, 2400, 500), true);
+        ForegroundTracker tracker = new ForegroundTracker(windowSystem);
+        tracker.start();
+        assertEquals(first, tracker.get().getWindow());
+
+        windowSystem.setForegroundWindow(second);
+        long calls = windowSystem.getCallCount(SimulatedWindowSystem.Call.FOREGROUND_WINDOW);
+
+        assertEquals(second, tracker.get().getWindow());
+        assertEquals(calls + 1, windowSystem.getCallCount(SimulatedWindowSystem.Call.FOREGROUND_WINDOW));
+    }
+
+    @Test
+    void agreesWithTheWindowSystemThroughoutARandomEventStream() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS);
+        ForegroundTracker tracker = new ForegroundTracker(windowSystem);
+        tracker.start();
+        List<Long> windows = new ArrayList<>();
+        Random random = new Random(17);
+
+        for (int event = 0; event < 10_000; event++) {
+            int kind = windows.isEmpty() ? 0 : random.nextInt(10);
+            if (kind == 0 && windows.size() < 20) {
+                windows.add(windowSystem.addWindow(randomRect(random), random.nextBoolean()));
+            } else if (kind == 1) {
+                windowSystem.removeWindow(windows.remove(random.nextInt(windows.size())));
+            } else if (kind < 5) {
+                windowSystem.setForegroundWindow(windows.get(random.nextInt(windows.size())));
+            } else if (!windows.isEmpty()) {
+                windowSystem.setWindowRect(windows.get(random.nextInt(windows.size())), randomRect(random));
+            }
+
+            ForegroundWindow record = tracker.get();
+            long foreground = windowSystem.getForegroundWindow();
+            assertEquals(foreground, record.getWindow(), "after event " + event);
+            if (foreground != 0) {
+                assertEquals(windowSystem.getWindowRect(foreground), record.getRect(), "after event " + event);
+                assertEquals(windowSystem.getMonitorFromWindow(foreground), record.getMonitor(), "after event " + event);
+                assertEquals(windowSystem.isResizable(foreground), record.isResizable(), "after event " + event);
+            }
+        }
+        assertFalse(windows.isEmpty());
+    }
+
+    private static Rect randomRect(Random random) {
+        int left = random.nextInt(3400);
+        int top = random.nextInt(800);
+        return new Rect(left, top, left + 200 + random.nextInt(400), top + 100 + random.nextInt(200));
+    }
+
+    private static void assertRecord(long window, Rect rect, long monitor, boolean resizable, ForegroundWindow record) {
+        assertEquals(window, record.getWindow());
+        assertEquals(rect, record.getRect());
+        assertEquals(monitor, record.getMonitor());
+        assertEquals(resizable, record.isResizable());
+    }
+
+}
@@ -0,0 +1,59 @@
+package backend;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LayoutTableTest {
+
+    @Test
+    void resolvesEveryPositionWithinTheWorkArea() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(2, 1920, 1080, 40));
+        Layout layout = Layout.compile(Map.of());
+        LayoutTable table = LayoutTable.compile(layout, MonitorTopology.capture(windowSystem));
+
+        // the taskbar is left out of every cell
+        assertEquals(new Rect(0, 0, 960, 520), table.get(0, layout.indexOf("top_left")));
+        assertEquals(new Rect(2880, 520, 3840, 1040), table.get(1, layout.indexOf("bottom_right")));
+        assertEquals(new Rect(1920, 346, 3840, 693), table.get(1, layout.indexOf("middle")));
+    }
+
+    @Test
+    void resolvesDefinedCells() {
+
+        Layout layout = Layout.compile(Map.of("main", "2:1x1@0,0", "center", "3x3@1,1"));
+        MonitorTopology topology = MonitorTopology.capture(new SimulatedWindowSystem(new Monitor(1, new Rect(0, 0, 3000, 1500), new Rect(0, 0, 3000, 1500))));
+        LayoutTable table = LayoutTable.compile(layout, topology);
+
+        assertEquals(new Rect(0, 0, 2000, 1500), table.get(0, layout.indexOf("main")));
+        assertEquals(new Rect(1000, 500, 2000, 1000), table.get(0, layout.indexOf("center")));
+    }
+
+    @Test
+    void workAreaChangeRebuildsTheSnapshot() {
+
+        Monitor[] monitors = SimulatedWindowSystem.sideBySideMonitors(1, 1920, 1080, 40);
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(monitors);
+        long window = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        WindowManager windowManager = new WindowManager(windowSystem);
+
+        windowManager.moveWindow(window, "bottom_left");
+        assertEquals(new Rect(0, 520, 960, 1040), windowSystem.getWindowRect(window));
+
+        // the taskbar moves to the top of the same monitor, which only sends a work area change
+        long monitorCalls = windowSystem.getCallCount(SimulatedWindowSystem.Call.MONITORS);
+        windowSystem.setMonitors(new Monitor(monitors[0].getHandle(), monitors[0].getBounds(), new Rect(0, 60, 1920, 1080)));
+        assertEquals(monitorCalls + 1, windowSystem.getCallCount(SimulatedWindowSystem.Call.MONITORS));
+
+        windowManager.moveWindow(window, "bottom_left");
+        assertEquals(new Rect(0, 570, 960, 1080), windowSystem.getWindowRect(window));
+
+        // actions in between use the snapshot and never query the monitors
+        windowManager.moveWindow(window, "top_left");
+        assertEquals(new Rect(0, 60, 960, 570), windowSystem.getWindowRect(window));
+        assertEquals(monitorCalls + 1, windowSystem.getCallCount(SimulatedWindowSystem.Call.MONITORS));
+    }
+
+}
@@ -0,0 +1,51 @@
+package backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MonitorTopologyTest {
+
+    @Test
+    void capturesEveryMonitorByHandle() {
+
+        Monitor[] monitors = SimulatedWindowSystem.sideBySideMonitors(3, 1920, 1080, 40);
+        MonitorTopology topology = MonitorTopology.capture(new SimulatedWindowSystem(monitors));
+
+        assertEquals(3, topology.size());
+        for (int i = 0; i < monitors.length; i++) {
+            assertEquals(i, topology.indexOf(monitors[i].getHandle()));
+            assertSame(monitors[i], topology.get(monitors[i].getHandle()));
+            assertSame(monitors[i], topology.getMonitor(i));
+        }
+    }
+
+    @Test
+    void unknownHandleIsNotFound() {
+
+        MonitorTopology topology = MonitorTopology.capture(new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(2, 1920, 1080, 40)));
+
+        assertEquals(-1, topology.indexOf(99));
+        assertNull(topology.get(99));
+    }
+
+    @Test
+    void capturesTheMonitorsOnceAndKeepsThem() {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(2, 1920, 1080, 40));
+        MonitorTopology topology = MonitorTopology.capture(windowSystem);
+        assertEquals(1, windowSystem.getCallCount(SimulatedWindowSystem.Call.MONITORS));
+
+        for (int i = 0; i < 1000; i++)
+            topology.get(topology.getMonitor(i % 2).getHandle());
+        windowSystem.setMonitors(SimulatedWindowSystem.sideBySideMonitors(1, 2560, 1440, 40));
+
+        // lookups never query the window system, and a snapshot does not change with the monitors
+        assertEquals(1, windowSystem.getCallCount(SimulatedWindowSystem.Call.MONITORS));
+        assertEquals(2, topology.size());
+        assertEquals(new Rect(1920, 0, 3840, 1040), topology.getMonitor(1).getWorkArea());
+    }
+
+}
@@ -0,0 +1,66 @@
+package backend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ProfileSelectorTest {
+
+    private final Path file = ShortcutManager.getShortcutsFile();
+
+    @BeforeEach
+    void clearShortcuts() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, "");
+        ShortcutManager.loadShortcuts();
+    }
+
+    @AfterEach
+    void removeShortcuts() throws IOException {
+        Files.writeString(file, "");
+        ShortcutManager.loadShortcuts();
+    }
+
+    @Test
+    void profileLoadedAfterStartAppliesToTheFocusedWindow() throws IOException {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(1, 1920, 1080, 40));
+        windowSystem.addWindow(new Rect(100, 100, 500, 500), true, "Code.exe", "Chrome_WidgetWin_1", "Visual Studio Code");
+        ProfileSelector profileSelector = new ProfileSelector(windowSystem);
+        profileSelector.start();
+
+        // the shortcuts are loaded after the window manager was created, as at startup, and the focus does not change
+        Files.writeString(file, "top_left=18,85\nprofile.code.exe/top_left=17,49\n");
+        ShortcutManager.loadShortcuts();
+
+        Bindings bindings = ShortcutManager.getBindings();
+        assertSame(bindings.getTrie("code.exe"), profileSelector.getTrie(bindings));
+        assertNotSame(bindings.getTrie(), profileSelector.getTrie(bindings));
+    }
+
+    @Test
+    void windowOfAnotherProcessKeepsTheShortcuts() throws IOException {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(1, 1920, 1080, 40));
+        long editor = windowSystem.addWindow(new Rect(100, 100, 500, 500), true, "code.exe", "Chrome_WidgetWin_1", "Visual Studio Code");
+        long terminal = windowSystem.addWindow(new Rect(300, 300, 700, 700), true, "wt.exe", "CASCADIA_HOSTING_WINDOW_CLASS", "Terminal");
+        ProfileSelector profileSelector = new ProfileSelector(windowSystem);
+        profileSelector.start();
+        Files.writeString(file, "top_left=18,85\nprofile.code.exe/top_left=17,49\n");
+        ShortcutManager.loadShortcuts();
+        Bindings bindings = ShortcutManager.getBindings();
+
+        windowSystem.setForegroundWindow(terminal);
+        assertSame(bindings.getTrie(), profileSelector.getTrie(bindings));
+
+        windowSystem.setForegroundWindow(editor);
+        assertSame(bindings.getTrie("code.exe"), profileSelector.getTrie(bindings));
+    }
+
+}
@@ -0,0 +1,141 @@
+package backend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShortcutStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void savesOnlyTheChangesIntoTheJournal() throws IOException {
+
+        Path file = directory.resolve("shortcuts.txt");
+        Files.writeString(file, "top_left=18,85\ntop_right=18,73\nlayout.center=3x3@1,1\n");
+        ShortcutStore store = new ShortcutStore(file);
+        store.load();
+
+        store.save(Map.of("top_left", "17,49"), List.of("top_right"));
+
+        assertEquals("top_left=18,85\ntop_right=18,73\nlayout.center=3x3@1,1\n", Files.readString(file));
+        assertEquals(Map.of("top_left", "17,49", "layout.center", "3x3@1,1"), new ShortcutStore(file).load());
+    }
+
+    @Test
+    void unchangedEntriesAreNotWritten() throws IOException {
+
+        Path file = directory.resolve("shortcuts.txt");
+        Files.writeString(file, "top_left=18,85\n");
+        ShortcutStore store = new ShortcutStore(file);
+        store.load();
+
+        store.save(Map.of("top_left", "18,85"), List.of("bottom"));
+
+        assertFalse(Files.exists(journalOf(file)));
+    }
+
+    @Test
+    void tornRecordIsCutOffSoThatLaterSavesAreKept() throws IOException {
+
+        Path file = directory.resolve("shortcuts.bin");
+        ShortcutStore store = new ShortcutStore(file);
+        store.load();
+        store.save(Map.of("top_left", "18,85"), List.of());
+
+        // a crash in the middle of appending the next record
+        Files.write(journalOf(file), new byte[]{0, 40, 1, 0, 8, 't', 'o'}, StandardOpenOption.APPEND);
+        long tornSize = Files.size(journalOf(file));
+
+        store = new ShortcutStore(file);
+        assertEquals(Map.of("top_left", "18,85"), store.load());
+        assertEquals(tornSize - 7, Files.size(journalOf(file)));
+
+        store.save(Map.of("bottom", "18,78"), List.of());
+        assertEquals(Map.of("top_left", "18,85", "bottom", "18,78"), new ShortcutStore(file).load());
+    }
+
+    @Test
+    void unreadableJournalIsSetAsideSoThatLaterSavesAreKept() throws IOException {
+
+        Path file = directory.resolve("shortcuts.txt");
+        Files.writeString(file, "top_left=18,85\n");
+        Files.write(journalOf(file), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        ShortcutStore store = new ShortcutStore(file);
+        assertEquals(Map.of("top_left", "18,85"), store.load());
+        assertTrue(Files.exists(journalOf(file).resolveSibling("shortcuts.txt.journal.discarded")));
+
+        store.save(Map.of("bottom", "18,78"), List.of());
+        assertEquals(Map.of("top_left", "18,85", "bottom", "18,78"), new ShortcutStore(file).load());
+    }
+
+    @Test
+    void journalOfAnotherVersionIsSetAside() throws IOException {
+
+        Path file = directory.resolve("shortcuts.txt");
+        Files.writeString(file, "top_left=18,85\n");
+        ShortcutStore store = new ShortcutStore(file);
+        store.load();
+        store.save(Map.of("top_left", "17,49"), List.of());
+
+        // the version follows the four bytes of the magic
+        byte[] journal = Files.readAllBytes(journalOf(file));
+        journal[4]++;
+        Files.write(journalOf(file), journal);
+
+        assertEquals(Map.of("top_left", "18,85"), new ShortcutStore(file).load());
+        assertTrue(Files.exists(journalOf(file).resolveSibling("shortcuts.txt.journal.discarded")));
+    }
+
+    @Test
+    void handEditIsNotOverwrittenByTheJournal() throws IOException {
+
+        Path file = directory.resolve("shortcuts.txt");
+        Files.writeString(file, "top_left=18,85\n");
+        ShortcutStore store = new ShortcutStore(file);
+        store.load();
+        store.save(Map.of("top_left", "17,49"), List.of());
+
+        // edited by hand while the application runs, the journal still holds the saved top_left
+        Files.writeString(file, "top_left=18,65\ntop=18,89\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2_000));
+
+        store.save(Map.of("bottom", "18,78"), List.of());
+
+        Map<String, String> expected = Map.of("top_left", "18,65", "top", "18,89", "bottom", "18,78");
+        assertEquals(expected, new ShortcutStore(file).load());
+        assertEquals(expected, new ShortcutStore(file).load()); // and it stays so on every later load
+    }
+
+    @Test
+    void compactionFoldsTheJournalIntoTheBaseFile() throws IOException {
+
+        Path file = directory.resolve("shortcuts.txt");
+        ShortcutStore store = new ShortcutStore(file);
+        store.load();
+        for (int i = 0; i < 300; i++)
+            store.save(Map.of("position_" + i % 10, "18," + (65 + i % 26)), List.of());
+
+        Map<String, String> loaded = new ShortcutStore(file).load();
+        assertEquals(10, loaded.size());
+        assertEquals("18," + (65 + 299 % 26), loaded.get("position_9"));
+        assertTrue(Files.size(journalOf(file)) < 300 * 20);
+    }
+
+    private static Path journalOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".journal");
+    }
+
+}
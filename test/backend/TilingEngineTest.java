@@ -0,0 +1,241 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TilingEngineTest {
+
+    private static final Monitor[] MONITORS = SimulatedWindowSystem.sideBySideMonitors(2, 1920, 1080, 40);
+
+    private final List<Set<Long>> batches = new ArrayList<>(); // the windows of every batch move, in order
+    private final SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(MONITORS) {
+        @Override
+        public boolean setWindowPositions(long[] windows, Rect[] targets, int count) {
+            Set<Long> batch = new HashSet<>();
+            for (int i = 0; i < count; i++)
+                batch.add(windows[i]);
+            batches.add(batch);
+            return super.setWindowPositions(windows, targets, count);
+        }
+    };
+    private final WindowAnimator windowAnimator = new WindowAnimator(windowSystem, MonitorTopology.capture(windowSystem), new LatencyMetrics());
+    private final TilingEngine tilingEngine = new TilingEngine(windowSystem, new ForegroundTracker(windowSystem), windowAnimator, new LatencyMetrics());
+
+    @Test
+    void tilesTheResizableWindowsOfTheMonitorInOneBatch() {
+
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long fixed = windowSystem.addWindow(new Rect(200, 200, 600, 600), false);
+        long second = windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+        long elsewhere = windowSystem.addWindow(new Rect(2000, 100, 2400, 500), true);
+        tilingEngine.start();
+
+        assertTrue(tilingEngine.toggle(MONITORS[0]));
+
+        assertEquals(List.of(Set.of(first, second)), batches);
+        assertEquals(new Rect(0, 0, 960, 1040), windowSystem.getWindowRect(first));
+        assertEquals(new Rect(960, 0, 1920, 1040), windowSystem.getWindowRect(second));
+        assertEquals(new Rect(200, 200, 600, 600), windowSystem.getWindowRect(fixed));
+        assertFalse(tilingEngine.isTiledWindow(fixed));
+        assertFalse(tilingEngine.isTiledWindow(elsewhere));
+    }
+
+    @Test
+    void newWindowSplitsTheLargestLeafAndMovesOnlyTheTwoWindowsSharingIt() {
+
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long second = windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+        tilingEngine.start();
+        tilingEngine.toggle(MONITORS[0]);
+        batches.clear();
+
+        long third = windowSystem.addWindow(new Rect(400, 400, 800, 800), true);
+
+        // the right half is taller than wide, so it is split into a top and a bottom half
+        assertEquals(List.of(Set.of(second, third)), batches);
+        assertEquals(new Rect(0, 0, 960, 1040), windowSystem.getWindowRect(first));
+        assertEquals(new Rect(960, 0, 1920, 520), windowSystem.getWindowRect(second));
+        assertEquals(new Rect(960, 520, 1920, 1040), windowSystem.getWindowRect(third));
+
+        // the left half is the largest leaf now
+        batches.clear();
+        long fourth = windowSystem.addWindow(new Rect(400, 400, 800, 800), true);
+        assertEquals(List.of(Set.of(first, fourth)), batches);
+        assertEquals(new Rect(0, 0, 960, 520), windowSystem.getWindowRect(first));
+        assertEquals(new Rect(0, 520, 960, 1040), windowSystem.getWindowRect(fourth));
+    }
+
+    @Test
+    void removedWindowLeavesItsAreaToItsSibling() {
+
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long second = windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+        long third = windowSystem.addWindow(new Rect(400, 400, 800, 800), true);
+        tilingEngine.start();
+        tilingEngine.toggle(MONITORS[0]);
+        batches.clear();
+
+        windowSystem.removeWindow(third);
+        assertEquals(List.of(Set.of(second)), batches);
+        assertEquals(new Rect(960, 0, 1920, 1040), windowSystem.getWindowRect(second));
+
+        // a minimized window gives its area away as well, here the whole subtree of its sibling grows
+        long fourth = windowSystem.addWindow(new Rect(400, 400, 800, 800), true);
+        batches.clear();
+        windowSystem.setVisible(first, false);
+        assertEquals(List.of(Set.of(second, fourth)), batches);
+        assertEquals(new Rect(0, 0, 960, 1040), windowSystem.getWindowRect(second));
+        assertEquals(new Rect(960, 0, 1920, 1040), windowSystem.getWindowRect(fourth));
+        assertFalse(tilingEngine.isTiledWindow(first));
+    }
+
+    @Test
+    void windowDroppedOntoAnotherSwapsWithIt() {
+
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long second = windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+        long third = windowSystem.addWindow(new Rect(400, 400, 800, 800), true);
+        tilingEngine.start();
+        tilingEngine.toggle(MONITORS[0]);
+        batches.clear();
+
+        windowSystem.setWindowRect(first, new Rect(1000, 600, 1800, 1000));
+
+        assertEquals(List.of(Set.of(first, third)), batches);
+        assertEquals(new Rect(960, 520, 1920, 1040), windowSystem.getWindowRect(first));
+        assertEquals(new Rect(0, 0, 960, 1040), windowSystem.getWindowRect(third));
+        assertEquals(new Rect(960, 0, 1920, 520), windowSystem.getWindowRect(second));
+    }
+
+    @Test
+    void dragWithinItsOwnAreaIsUndone() {
+
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+        tilingEngine.start();
+        tilingEngine.toggle(MONITORS[0]);
+        batches.clear();
+
+        windowSystem.setWindowRect(first, new Rect(50, 50, 850, 850));
+
+        assertEquals(List.of(Set.of(first)), batches);
+        assertEquals(new Rect(0, 0, 960, 1040), windowSystem.getWindowRect(first));
+    }
+
+    @Test
+    void windowDroppedOntoAnotherMonitorLeavesTheTiling() {
+
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long second = windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+        tilingEngine.start();
+        tilingEngine.toggle(MONITORS[0]);
+        batches.clear();
+
+        windowSystem.setWindowRect(second, new Rect(2000, 100, 2400, 500));
+
+        assertEquals(List.of(Set.of(first)), batches);
+        assertEquals(new Rect(0, 0, 1920, 1040), windowSystem.getWindowRect(first));
+        assertEquals(new Rect(2000, 100, 2400, 500), windowSystem.getWindowRect(second));
+        assertFalse(tilingEngine.isTiledWindow(second));
+    }
+
+    @Test
+    void changeCostsTheSameHoweverManyWindowsAreTiled() {
+
+        List<Long> windows = new ArrayList<>();
+        for (int i = 0; i < 16; i++)
+            windows.add(windowSystem.addWindow(new Rect(100, 100, 500, 500), true));
+        tilingEngine.start();
+        tilingEngine.toggle(MONITORS[0]);
+        assertEquals(16, batches.get(0).size());
+        batches.clear();
+
+        // the tree is balanced, every window has the same share of the work area
+        for (long window : windows) {
+            assertEquals(480, windowSystem.getWindowRect(window).width());
+            assertEquals(260, windowSystem.getWindowRect(window).height());
+        }
+
+        long added = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertTrue(batches.get(0).contains(added));
+
+        Set<Long> split = new HashSet<>(batches.get(0));
+        split.remove(added);
+        batches.clear();
+        windowSystem.removeWindow(added);
+        assertEquals(List.of(split), batches);
+    }
+
+    @Test
+    void windowsWhichWouldGetATooSmallTileAreLeftFloating() {
+
+        List<Long> windows = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            windows.add(windowSystem.addWindow(new Rect(100, 100, 500, 500), true));
+        tilingEngine.start();
+        tilingEngine.toggle(MONITORS[0]);
+
+        // 32 tiles of 240 x 260 fit, splitting one more would leave tiles 130 pixels high
+        assertEquals(32, batches.get(0).size());
+        for (long window : windows.subList(0, 32)) {
+            assertTrue(tilingEngine.isTiledWindow(window));
+            assertEquals(240, windowSystem.getWindowRect(window).width());
+            assertEquals(260, windowSystem.getWindowRect(window).height());
+        }
+        for (long window : windows.subList(32, 40)) {
+            assertFalse(tilingEngine.isTiledWindow(window));
+            assertEquals(new Rect(100, 100, 500, 500), windowSystem.getWindowRect(window));
+        }
+
+        batches.clear();
+        long added = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        assertEquals(List.of(), batches);
+        assertFalse(tilingEngine.isTiledWindow(added));
+    }
+
+    @Test
+    void switchingTilingOffLeavesTheWindowsWhereTheyAre() {
+
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        tilingEngine.start();
+        tilingEngine.toggle(MONITORS[0]);
+        batches.clear();
+
+        assertFalse(tilingEngine.toggle(MONITORS[0]));
+        windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+
+        assertEquals(List.of(), batches);
+        assertEquals(new Rect(0, 0, 1920, 1040), windowSystem.getWindowRect(first));
+        assertFalse(tilingEngine.isTiledWindow(first));
+    }
+
+    @Test
+    void tilingStopsWindowsWhichAreStillSliding() throws InterruptedException {
+
+        long first = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        long second = windowSystem.addWindow(new Rect(300, 300, 700, 700), true);
+        tilingEngine.start();
+        windowAnimator.start();
+
+        // both windows are on their way after an arrange which takes far longer than the test
+        windowAnimator.animate(first, "top_left", new Rect(100, 100, 500, 500), new Rect(0, 0, 960, 520), 60_000_000_000L);
+        windowAnimator.animate(second, "bottom_right", new Rect(300, 300, 700, 700), new Rect(960, 520, 1920, 1040), 60_000_000_000L);
+        Thread.sleep(50);
+        tilingEngine.toggle(MONITORS[0]);
+
+        assertEquals(0, windowAnimator.getActiveCount());
+        Thread.sleep(50); // a few frame periods, any frame left would have landed by now
+        assertEquals(new Rect(0, 0, 960, 1040), windowSystem.getWindowRect(first));
+        assertEquals(new Rect(960, 0, 1920, 1040), windowSystem.getWindowRect(second));
+    }
+
+}
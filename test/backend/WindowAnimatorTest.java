@@ -0,0 +1,74 @@
+package backend;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowAnimatorTest {
+
+    private static final long LONG_ANIMATION_NANOS = 60_000_000_000L;
+
+    @Test
+    void slidesTheWindowToItsTarget() throws InterruptedException {
+
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(1, 1920, 1080, 40));
+        long window = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        WindowAnimator windowAnimator = new WindowAnimator(windowSystem, MonitorTopology.capture(windowSystem), new LatencyMetrics());
+        windowAnimator.start();
+
+        assertTrue(windowAnimator.animate(window, "top_left", new Rect(100, 100, 500, 500), new Rect(0, 0, 960, 520), 50_000_000L));
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (windowAnimator.getActiveCount() > 0 && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertEquals(0, windowAnimator.getActiveCount());
+        assertEquals(new Rect(0, 0, 960, 520), windowSystem.getWindowRect(window));
+    }
+
+    @Test
+    void cancelWaitsForTheFrameInFlight() throws InterruptedException {
+
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SimulatedWindowSystem windowSystem = new SimulatedWindowSystem(SimulatedWindowSystem.sideBySideMonitors(1, 1920, 1080, 40)) {
+            @Override
+            public boolean setWindowBounds(long[] windows, int[] bounds, int count) {
+                // the first frame is held in the middle of its commit
+                committing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.setWindowBounds(windows, bounds, count);
+            }
+        };
+        long window = windowSystem.addWindow(new Rect(100, 100, 500, 500), true);
+        WindowAnimator windowAnimator = new WindowAnimator(windowSystem, MonitorTopology.capture(windowSystem), new LatencyMetrics());
+        windowAnimator.start();
+
+        windowAnimator.animate(window, "top_left", new Rect(100, 100, 500, 500), new Rect(0, 0, 960, 520), LONG_ANIMATION_NANOS);
+        assertTrue(committing.await(5, TimeUnit.SECONDS));
+
+        // the window is moved at once like moveWindow does, which must happen after the frame computed before the cancel
+        Thread mover = new Thread(() -> {
+            windowAnimator.cancel(window);
+            windowSystem.setWindowPosition(window, 960, 520, 960, 520);
+        });
+        mover.start();
+        mover.join(200);
+        assertTrue(mover.isAlive());
+
+        release.countDown();
+        mover.join(5_000);
+        assertFalse(mover.isAlive());
+        Thread.sleep(50); // a few frame periods, a frame of the cancelled animation would have landed by now
+        assertEquals(new Rect(960, 520, 1920, 1040), windowSystem.getWindowRect(window));
+        assertEquals(0, windowAnimator.getActiveCount());
+    }
+
+}